@@ -32,6 +32,18 @@ public final class Krobot
     public static final String PROPERTY_DISABLE_STATE_BAR = "krobot.disableStateBar";
     public static final String PROPERTY_DISABLE_CONSOLE = "krobot.disableConsole";
     public static final String PROPERTY_DISABLE_COLORS = "krobot.disableColors";
+    public static final String PROPERTY_EXECUTION_MODE = "krobot.executionMode";
+    public static final String PROPERTY_ORDERING = "krobot.ordering";
+    public static final String PROPERTY_ORDERING_QUEUE_CAP = "krobot.orderingQueueCap";
+    public static final String PROPERTY_OVERFLOW_POLICY = "krobot.overflowPolicy";
+    public static final String PROPERTY_INGRESS_CAPACITY = "krobot.ingressCapacity";
+    public static final String PROPERTY_MAX_QUEUE_AGE = "krobot.maxQueueAge";
+    public static final String PROPERTY_GUILD_MODULES = "krobot.guildModules";
+    public static final String PROPERTY_CONFIG_FLUSH_WINDOW = "krobot.configFlushWindow";
+    public static final String PROPERTY_WATCH_CONFIGS = "krobot.watchConfigs";
+    public static final String PROPERTY_STARTUP_THREADS = "krobot.startupThreads";
+    public static final String PROPERTY_STARTUP_REPORT = "krobot.startupReport";
+    public static final String PROPERTY_GATEWAY = "krobot.gateway";
 
     public static KrobotRunner create()
     {
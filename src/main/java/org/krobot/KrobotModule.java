@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
@@ -43,6 +44,7 @@ import org.krobot.module.FilterAccessor;
 import org.krobot.module.FilterRules;
 import org.krobot.module.ImportAccessor;
 import org.krobot.module.ImportRules;
+import org.krobot.module.Scope;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -59,7 +61,9 @@ public abstract class KrobotModule
     protected static final Includes EVENTS = Includes.EVENTS;
     protected static final Includes FILTERS = Includes.FILTERS;
 
-    protected Injector injector;
+    // Created when first needed, subclasses use injector()
+    private volatile Injector injector;
+    private Supplier<Injector> injectorFactory;
 
     private List<ImportRules> imports;
     private List<ConfigRules> configs;
@@ -147,12 +151,53 @@ public abstract class KrobotModule
         return guild(guild -> guild.getName().equalsIgnoreCase(guildName));
     }
 
+    protected FilterAccessor guild(long... ids)
+    {
+        return when(Scope.guild(ids));
+    }
+
+    protected FilterAccessor channel(long... ids)
+    {
+        return when(Scope.channel(ids));
+    }
+
+    protected FilterAccessor category(long... ids)
+    {
+        return when(Scope.category(ids));
+    }
+
+    protected FilterAccessor role(long... ids)
+    {
+        return when(Scope.role(ids));
+    }
+
+    protected FilterAccessor privateMessages()
+    {
+        return when(Scope.privateMessages());
+    }
+
+    /**
+     * Register a command, its handler is created when it is first called
+     */
     protected CommandAccessor command(String path, Class<? extends CommandHandler> handler)
     {
-        return command(path, injector.getInstance(handler));
+        PathCompiler compiler = compile(path);
+        return command(new KrobotCommand(compiler.label(), compiler.args(), handler, () -> injector().getInstance(handler)));
     }
 
     protected CommandAccessor command(String path, CommandHandler handler)
+    {
+        PathCompiler compiler = compile(path);
+        return command(new KrobotCommand(compiler.label(), compiler.args(), handler));
+    }
+
+    private CommandAccessor command(KrobotCommand command)
+    {
+        commands.add(command);
+        return new CommandAccessor(this, command);
+    }
+
+    private static PathCompiler compile(String path)
     {
         PathCompiler compiler = new PathCompiler(path.trim());
 
@@ -165,16 +210,13 @@ public abstract class KrobotModule
             System.exit(0);
         }
 
-        KrobotCommand command = new KrobotCommand(compiler.label(), compiler.args(), handler);
-        commands.add(command);
-
-        return new CommandAccessor(this, command);
+        return compiler;
     }
 
     @SafeVarargs /* To suppress an ugly warning */
     protected final /* @SafeVarargs requires final */ void filters(Class<CommandFilter>... filters)
     {
-        filters(Stream.of(filters).map(injector::getInstance).toArray(CommandFilter[]::new));
+        filters(Stream.of(filters).map(injector()::getInstance).toArray(CommandFilter[]::new));
     }
 
     protected void filters(CommandFilter... filters)
@@ -185,7 +227,7 @@ public abstract class KrobotModule
     @SafeVarargs /* To suppress an ugly warning */
     protected final /* @SafeVarargs requires final */ void listeners(Class<? extends Object>... listeners) // "? extends Object" needed for SafeVarargs
     {
-        listeners(Stream.of(listeners).map(injector::getInstance).toArray(Object[]::new));
+        listeners(Stream.of(listeners).map(injector()::getInstance).toArray(Object[]::new));
     }
 
     protected void listeners(Object... listeners)
@@ -206,7 +248,7 @@ public abstract class KrobotModule
     @SafeVarargs /* To suppress an ugly warning */
     protected final /* @SafeVarargs requires final */ void consoleCommands(Class<? extends ConsoleCommand>... commands)
     {
-        consoleCommands(Stream.of(commands).map(injector::getInstance).toArray(ConsoleCommand[]::new));
+        consoleCommands(Stream.of(commands).map(injector()::getInstance).toArray(ConsoleCommand[]::new));
     }
 
     protected void consoleCommands(ConsoleCommand... commands)
@@ -224,9 +266,29 @@ public abstract class KrobotModule
         return KrobotRuntime.get().jda();
     }
 
+    /**
+     * @return The injector of this module, created on the first call. Modules
+     *         without anything to inject may never create it.
+     */
     public Injector injector()
     {
-        return this.injector;
+        Injector injector = this.injector;
+
+        if (injector != null)
+        {
+            return injector;
+        }
+
+        synchronized (this)
+        {
+            if (this.injector == null && injectorFactory != null)
+            {
+                this.injector = injectorFactory.get();
+                this.injectorFactory = null;
+            }
+
+            return this.injector;
+        }
     }
 
     public List<ImportRules> getImports()
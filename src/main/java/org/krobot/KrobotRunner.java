@@ -24,6 +24,8 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Scanner;
 import org.krobot.runtime.KrobotRuntime;
+import org.krobot.runtime.MessageOrdering;
+import org.krobot.runtime.OverflowPolicy;
 
 import static org.krobot.Krobot.*;
 
@@ -86,6 +88,75 @@ public class KrobotRunner
         return this;
     }
 
+    public KrobotRunner useVirtualThreads()
+    {
+        System.setProperty(PROPERTY_EXECUTION_MODE, "virtual");
+        return this;
+    }
+
+    public KrobotRunner orderMessagesBy(MessageOrdering ordering)
+    {
+        System.setProperty(PROPERTY_ORDERING, ordering.name().toLowerCase());
+        return this;
+    }
+
+    public KrobotRunner setOrderingQueueCap(int queueCap)
+    {
+        System.setProperty(PROPERTY_ORDERING_QUEUE_CAP, String.valueOf(queueCap));
+        return this;
+    }
+
+    public KrobotRunner setOverflowPolicy(OverflowPolicy policy)
+    {
+        System.setProperty(PROPERTY_OVERFLOW_POLICY, policy.name().toLowerCase());
+        return this;
+    }
+
+    public KrobotRunner setIngressCapacity(int capacity)
+    {
+        System.setProperty(PROPERTY_INGRESS_CAPACITY, String.valueOf(capacity));
+        return this;
+    }
+
+    /**
+     * @param maxAge The time after which a message waiting to be handled is dropped, in milliseconds (0 to disable it)
+     */
+    public KrobotRunner setMaxQueueAge(long maxAge)
+    {
+        System.setProperty(PROPERTY_MAX_QUEUE_AGE, String.valueOf(maxAge));
+        return this;
+    }
+
+    /**
+     * Reload the file configs when they are edited while the bot is running
+     */
+    public KrobotRunner watchConfigs()
+    {
+        System.setProperty(PROPERTY_WATCH_CONFIGS, "true");
+        return this;
+    }
+
+    /**
+     * Start the modules not depending on each other in parallel. Their
+     * init methods must then be safe to run concurrently.
+     *
+     * @param threads The number of threads starting the modules in parallel (1, the default, to start them one by one)
+     */
+    public KrobotRunner setStartupThreads(int threads)
+    {
+        System.setProperty(PROPERTY_STARTUP_THREADS, String.valueOf(threads));
+        return this;
+    }
+
+    /**
+     * @param path The file the JSON startup timings are written in
+     */
+    public KrobotRunner setStartupReport(String path)
+    {
+        System.setProperty(PROPERTY_STARTUP_REPORT, path);
+        return this;
+    }
+
     public KrobotRunner readTokenFromArgs(String[] args)
     {
         if (args.length > 0)
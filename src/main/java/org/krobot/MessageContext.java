@@ -24,11 +24,11 @@ import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
 import org.krobot.permission.BotNotAllowedException;
 import org.krobot.permission.UserNotAllowedException;
+import org.krobot.runtime.FilterDecisions;
 import org.krobot.util.Dialog;
 import org.krobot.util.MessageUtils;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 /**
  * The Command Context<br><br>
@@ -49,6 +49,8 @@ public class MessageContext
     private Message message;
     private MessageChannel channel;
 
+    private FilterDecisions filterDecisions;
+
     /**
      * The command Context
      *
@@ -82,7 +84,7 @@ public class MessageContext
             return;
         }
 
-        if (!guild.retrieveMember(jda.getSelfUser()).complete().hasPermission(permission))
+        if (!guild.getSelfMember().hasPermission(permission))
         {
             throw new BotNotAllowedException(permission);
         }
@@ -96,16 +98,33 @@ public class MessageContext
      * @param permission The permission to check
      *
      * @throws UserNotAllowedException If the user hasn't the permission
+     *
+     * @deprecated Blocks if the caller member isn't cached, use
+     *             {@link #retrieveMember()} then {@link #requireCaller(Member, Permission)}
      */
+    @Deprecated
     public void requireCaller(Permission permission) throws UserNotAllowedException
     {
-        Member member = getMember();
+        requireCaller(getMember(), permission);
+    }
+
+    /**
+     * Same as {@link #requireCaller(Permission)}, with the caller member
+     * already retrieved
+     *
+     * @param member The caller member (see {@link #retrieveMember()})
+     * @param permission The permission to check
+     *
+     * @throws UserNotAllowedException If the user hasn't the permission
+     */
+    public void requireCaller(Member member, Permission permission) throws UserNotAllowedException
+    {
         if (member == null)
         {
             return;
         }
 
-        if (!this.getMember().hasPermission(permission))
+        if (!member.hasPermission(permission))
         {
             throw new UserNotAllowedException(permission);
         }
@@ -175,27 +194,69 @@ public class MessageContext
         return send(Dialog.error(title, message));
     }
 
+    /**
+     * Check if the caller has the given permissions in the context channel
+     *
+     * @param permissions The permissions to check
+     *
+     * @return If the caller has them, always true out of a guild
+     *
+     * @deprecated Blocks if the caller member isn't cached, use
+     *             {@link #retrieveHasPermission(Permission...)} or {@link #hasPermission(Member, Permission...)}
+     */
+    @Deprecated
     public boolean hasPermission(Permission... permissions)
     {
         if (this.channel instanceof GuildChannel)
         {
-            Member member = getMember();
-            if (member == null) {
-                try {
-                    MessageUtils.deleteAfter(error("Membre inconnu", "Impossible de récupérer le membre de l'auteur de la commande").get(), 2500);
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
-                }
-
-                return false;
-            }
-
-            return member.hasPermission((GuildChannel) this.channel, permissions);
+            return hasPermission(getMember(), permissions);
         }
 
         return true;
     }
 
+    /**
+     * Same as {@link #hasPermission(Permission...)}, but without blocking
+     * if the caller member isn't cached
+     *
+     * @param permissions The permissions to check
+     *
+     * @return A Future completed with the check result
+     */
+    public CompletableFuture<Boolean> retrieveHasPermission(Permission... permissions)
+    {
+        if (this.channel instanceof GuildChannel)
+        {
+            return retrieveMember().thenApply(member -> hasPermission(member, permissions));
+        }
+
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Check if the given caller member has the given permissions in the context channel
+     *
+     * @param member The caller member (see {@link #retrieveMember()})
+     * @param permissions The permissions to check
+     *
+     * @return If the member has them, always true out of a guild
+     */
+    public boolean hasPermission(Member member, Permission... permissions)
+    {
+        if (!(this.channel instanceof GuildChannel))
+        {
+            return true;
+        }
+
+        if (member == null)
+        {
+            error("Membre inconnu", "Impossible de récupérer le membre de l'auteur de la commande").thenAccept(message -> MessageUtils.deleteAfter(message, 2500));
+            return false;
+        }
+
+        return member.hasPermission((GuildChannel) this.channel, permissions);
+    }
+
     public boolean botHasPermission(Permission... permissions)
     {
         if (this.channel instanceof GuildChannel)
@@ -244,12 +305,18 @@ public class MessageContext
             return null;
         }
 
-        return guild.getMember(jda.getSelfUser());
+        return guild.getSelfMember();
     }
 
     /**
+     * Get the guild member that called the command. If it isn't cached,
+     * blocks until it is retrieved.
+     *
      * @return The guild member that called the command
+     *
+     * @deprecated Blocks a thread of the message handling, use {@link #retrieveMember()}
      */
+    @Deprecated
     public Member getMember()
     {
         Guild guild = getGuild();
@@ -258,9 +325,35 @@ public class MessageContext
             return null;
         }
 
+        Member member = message.getMember();
+        if (member != null)
+        {
+            return member;
+        }
+
         return guild.retrieveMember(this.getUser()).complete();
     }
 
+    /**
+     * @return A Future completed with the guild member that called the command (or null if not in a guild)
+     */
+    public CompletableFuture<Member> retrieveMember()
+    {
+        Guild guild = getGuild();
+        if (guild == null)
+        {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Member member = message.getMember();
+        if (member != null)
+        {
+            return CompletableFuture.completedFuture(member);
+        }
+
+        return guild.retrieveMember(this.getUser()).submit();
+    }
+
     /**
      * @return The user that called the command
      */
@@ -292,4 +385,17 @@ public class MessageContext
     {
         return channel instanceof PrivateChannel;
     }
+
+    /**
+     * @return The filter results cached for this message by the {@link org.krobot.runtime.FilterRunner}, or null
+     */
+    public FilterDecisions getFilterDecisions()
+    {
+        return filterDecisions;
+    }
+
+    public void setFilterDecisions(FilterDecisions filterDecisions)
+    {
+        this.filterDecisions = filterDecisions;
+    }
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.command;
+
+import java.lang.reflect.Array;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.ClassUtils;
+
+/**
+ * Binds the raw arguments of a call to the arguments declared by the
+ * path of a command, using their {@link ArgumentFactory}.<br><br>
+ *
+ * Everything depending only on the declared arguments (slots, kinds of
+ * values, list types) is computed once when the binder is created.
+ */
+public class ArgumentBinder
+{
+    private final KrobotCommand command;
+    private final CommandArgument[] arguments;
+
+    private final String[] keys;
+    private final byte[] kinds;
+    private final Class<?>[] listTypes;
+    private final boolean primitives;
+
+    public ArgumentBinder(KrobotCommand command)
+    {
+        this.command = command;
+        this.arguments = command.getArguments();
+
+        this.keys = new String[arguments.length];
+        this.kinds = new byte[arguments.length];
+        this.listTypes = new Class<?>[arguments.length];
+
+        boolean primitives = false;
+
+        for (int i = 0; i < arguments.length; i++)
+        {
+            CommandArgument arg = arguments[i];
+
+            // Created without a slot, it takes its index in the command
+            if (arg.getSlot() < 0)
+            {
+                arg.assignSlot(i);
+            }
+
+            int slot = arg.getSlot();
+            ArgumentFactory factory = arg.getFactory();
+
+            keys[slot] = arg.getKey();
+            kinds[slot] = kindOf(factory);
+
+            if (arg.isList())
+            {
+                listTypes[slot] = factory.createArray().getClass().getComponentType();
+            }
+            else if (kinds[slot] != ArgumentMap.OBJECT)
+            {
+                primitives = true;
+            }
+        }
+
+        this.primitives = primitives;
+    }
+
+    private static byte kindOf(ArgumentFactory factory)
+    {
+        if (factory instanceof IntArgumentFactory)
+        {
+            return ArgumentMap.INT;
+        }
+        else if (factory instanceof LongArgumentFactory)
+        {
+            return ArgumentMap.LONG;
+        }
+        else if (factory instanceof FloatArgumentFactory)
+        {
+            return ArgumentMap.FLOAT;
+        }
+        else if (factory instanceof DoubleArgumentFactory)
+        {
+            return ArgumentMap.DOUBLE;
+        }
+
+        return ArgumentMap.OBJECT;
+    }
+
+    /**
+     * Convert the given raw arguments
+     *
+     * @param args The raw arguments of the call
+     *
+     * @return The converted arguments
+     *
+     * @throws WrongArgumentNumberException If too many or not enough arguments were given
+     * @throws BadArgumentTypeException If an argument can't be converted to its type
+     */
+    public ArgumentMap bind(String[] args) throws WrongArgumentNumberException, BadArgumentTypeException
+    {
+        ArgumentMap map = new ArgumentMap(keys, kinds, primitives ? new long[keys.length] : null);
+
+        int i;
+
+        for (i = 0; i < arguments.length; i++)
+        {
+            CommandArgument arg = arguments[i];
+
+            if (i > args.length - 1)
+            {
+                if (arg.isRequired())
+                {
+                    throw new WrongArgumentNumberException(command, args.length);
+                }
+
+                break;
+            }
+
+            if (arg.isList())
+            {
+                map.set(arg.getSlot(), bindList(arg, args, i));
+                i = args.length;
+            }
+            else
+            {
+                bind(map, arg, args[i]);
+            }
+        }
+
+        if (i < args.length - 1)
+        {
+            throw new WrongArgumentNumberException(command, args.length);
+        }
+
+        return map;
+    }
+
+    private void bind(ArgumentMap map, CommandArgument arg, String value) throws BadArgumentTypeException
+    {
+        int slot = arg.getSlot();
+        ArgumentFactory factory = arg.getFactory();
+
+        switch (kinds[slot])
+        {
+            case ArgumentMap.INT:
+                map.setPrimitive(slot, ((IntArgumentFactory) factory).processInt(value));
+                break;
+            case ArgumentMap.LONG:
+                map.setPrimitive(slot, ((LongArgumentFactory) factory).processLong(value));
+                break;
+            case ArgumentMap.FLOAT:
+                map.setPrimitive(slot, Float.floatToRawIntBits(((FloatArgumentFactory) factory).processFloat(value)));
+                break;
+            case ArgumentMap.DOUBLE:
+                map.setPrimitive(slot, Double.doubleToRawLongBits(((DoubleArgumentFactory) factory).processDouble(value)));
+                break;
+            default:
+                map.set(slot, factory.process(value));
+        }
+    }
+
+    private Object bindList(CommandArgument arg, String[] args, int from) throws BadArgumentTypeException
+    {
+        int slot = arg.getSlot();
+        int size = args.length - from;
+        ArgumentFactory factory = arg.getFactory();
+
+        switch (kinds[slot])
+        {
+            case ArgumentMap.INT:
+                int[] ints = new int[size];
+
+                for (int i = 0; i < size; i++)
+                {
+                    ints[i] = ((IntArgumentFactory) factory).processInt(args[from + i]);
+                }
+
+                return ints;
+            case ArgumentMap.LONG:
+                long[] longs = new long[size];
+
+                for (int i = 0; i < size; i++)
+                {
+                    longs[i] = ((LongArgumentFactory) factory).processLong(args[from + i]);
+                }
+
+                return longs;
+            case ArgumentMap.FLOAT:
+                float[] floats = new float[size];
+
+                for (int i = 0; i < size; i++)
+                {
+                    floats[i] = ((FloatArgumentFactory) factory).processFloat(args[from + i]);
+                }
+
+                return floats;
+            case ArgumentMap.DOUBLE:
+                double[] doubles = new double[size];
+
+                for (int i = 0; i < size; i++)
+                {
+                    doubles[i] = ((DoubleArgumentFactory) factory).processDouble(args[from + i]);
+                }
+
+                return doubles;
+            default:
+                Object[] list = (Object[]) Array.newInstance(listTypes[slot], size);
+
+                for (int i = 0; i < size; i++)
+                {
+                    list[i] = factory.process(args[from + i]);
+                }
+
+                // Custom factories may still produce wrappers, unboxed once here instead of on each read
+                return ClassUtils.isPrimitiveWrapper(listTypes[slot]) ? ArrayUtils.toPrimitive(list) : list;
+        }
+    }
+
+    public CommandArgument[] getArguments()
+    {
+        return arguments;
+    }
+}
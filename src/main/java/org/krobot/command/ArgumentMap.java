@@ -22,18 +22,70 @@ import java.util.Map;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.ClassUtils;
 
+/**
+ * The arguments of a command call.<br><br>
+ *
+ * Values are stored in a flat array, at the slot given to their argument by
+ * the {@link PathCompiler}. Values of the primitive factories (see
+ * {@link IntArgumentFactory}, {@link LongArgumentFactory}, {@link FloatArgumentFactory}
+ * and {@link DoubleArgumentFactory}) are never boxed unless read using {@link #get(String)}.
+ */
 public class ArgumentMap
 {
-    private Map<String, Object> args;
+    static final byte OBJECT = 0;
+    static final byte INT = 1;
+    static final byte LONG = 2;
+    static final byte FLOAT = 3;
+    static final byte DOUBLE = 4;
+
+    private static final Object PRIMITIVE = new Object();
+    private static final Object NULL = new Object();
+
+    private String[] keys;
+    private byte[] kinds;
+    private Object[] values;
+    private long[] primitives;
+
+    ArgumentMap(String[] keys, byte[] kinds, long[] primitives)
+    {
+        this.keys = keys;
+        this.kinds = kinds;
+        this.values = new Object[keys.length];
+        this.primitives = primitives;
+    }
 
     public ArgumentMap(Map<String, Object> args)
     {
-        this.args = args;
+        this(args.keySet().toArray(new String[0]), new byte[args.size()], null);
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            Object val = args.get(keys[i]);
+
+            if (val != null && val.getClass().isArray() && ClassUtils.isPrimitiveWrapper(val.getClass().getComponentType()))
+            {
+                val = ArrayUtils.toPrimitive(val);
+            }
+
+            set(i, val);
+        }
+    }
+
+    void set(int slot, Object value)
+    {
+        values[slot] = value == null ? NULL : value;
+    }
+
+    void setPrimitive(int slot, long value)
+    {
+        values[slot] = PRIMITIVE;
+        primitives[slot] = value;
     }
 
     public boolean has(String key)
     {
-        return args.containsKey(key);
+        int slot = slot(key);
+        return slot != -1 && values[slot] != null;
     }
 
     public <T> T get(String key, Class<T> type)
@@ -43,23 +95,187 @@ public class ArgumentMap
 
     public <T> T get(String key)
     {
-        Object val = args.get(key);
+        int slot = slot(key);
 
-        if (val == null)
+        if (slot == -1)
         {
             return null;
         }
 
-        if (val.getClass().isArray() && ClassUtils.isPrimitiveWrapper(val.getClass().getComponentType()))
+        Object val = values[slot];
+
+        if (val == PRIMITIVE)
+        {
+            return (T) box(slot);
+        }
+
+        return val == NULL ? null : (T) val;
+    }
+
+    /**
+     * Get a numeric argument as an int, without boxing it
+     *
+     * @param key The key of the argument
+     * @param def The value to return if the argument wasn't given
+     *
+     * @return The argument value, or the default one
+     */
+    public int getInt(String key, int def)
+    {
+        int slot = slot(key);
+        Object val = slot == -1 ? null : values[slot];
+
+        if (val == PRIMITIVE)
+        {
+            switch (kinds[slot])
+            {
+                case FLOAT:
+                    return (int) Float.intBitsToFloat((int) primitives[slot]);
+                case DOUBLE:
+                    return (int) Double.longBitsToDouble(primitives[slot]);
+                default:
+                    return (int) primitives[slot];
+            }
+        }
+
+        return val == null || val == NULL ? def : ((Number) val).intValue();
+    }
+
+    /**
+     * Get a numeric argument as a long, without boxing it
+     *
+     * @param key The key of the argument
+     * @param def The value to return if the argument wasn't given
+     *
+     * @return The argument value, or the default one
+     */
+    public long getLong(String key, long def)
+    {
+        int slot = slot(key);
+        Object val = slot == -1 ? null : values[slot];
+
+        if (val == PRIMITIVE)
         {
-            val = ArrayUtils.toPrimitive(val);
+            switch (kinds[slot])
+            {
+                case FLOAT:
+                    return (long) Float.intBitsToFloat((int) primitives[slot]);
+                case DOUBLE:
+                    return (long) Double.longBitsToDouble(primitives[slot]);
+                default:
+                    return primitives[slot];
+            }
         }
 
-        return (T) val;
+        return val == null || val == NULL ? def : ((Number) val).longValue();
+    }
+
+    /**
+     * Get a numeric argument as a float, without boxing it
+     *
+     * @param key The key of the argument
+     * @param def The value to return if the argument wasn't given
+     *
+     * @return The argument value, or the default one
+     */
+    public float getFloat(String key, float def)
+    {
+        return (float) getDouble(key, def);
+    }
+
+    /**
+     * Get a numeric argument as a double, without boxing it
+     *
+     * @param key The key of the argument
+     * @param def The value to return if the argument wasn't given
+     *
+     * @return The argument value, or the default one
+     */
+    public double getDouble(String key, double def)
+    {
+        int slot = slot(key);
+        Object val = slot == -1 ? null : values[slot];
+
+        if (val == PRIMITIVE)
+        {
+            switch (kinds[slot])
+            {
+                case FLOAT:
+                    return Float.intBitsToFloat((int) primitives[slot]);
+                case DOUBLE:
+                    return Double.longBitsToDouble(primitives[slot]);
+                default:
+                    return primitives[slot];
+            }
+        }
+
+        return val == null || val == NULL ? def : ((Number) val).doubleValue();
+    }
+
+    public int getInt(String key)
+    {
+        return getInt(key, 0);
+    }
+
+    public long getLong(String key)
+    {
+        return getLong(key, 0L);
+    }
+
+    public float getFloat(String key)
+    {
+        return getFloat(key, 0F);
+    }
+
+    public double getDouble(String key)
+    {
+        return getDouble(key, 0D);
     }
 
     public int count()
     {
-        return args.size();
+        int count = 0;
+
+        for (Object value : values)
+        {
+            if (value != null)
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private int slot(String key)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i].equals(key))
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private Object box(int slot)
+    {
+        long value = primitives[slot];
+
+        switch (kinds[slot])
+        {
+            case INT:
+                return (int) value;
+            case LONG:
+                return value;
+            case FLOAT:
+                return Float.intBitsToFloat((int) value);
+            case DOUBLE:
+                return Double.longBitsToDouble(value);
+            default:
+                return null;
+        }
     }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.command;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The factory of the arguments whose type is a list of choices (example &lt;mode:add|remove&gt;)
+ */
+public class ChoiceArgumentFactory implements ArgumentFactory<String>
+{
+    private final List<String> choices;
+    private final String type;
+
+    public ChoiceArgumentFactory(String... choices)
+    {
+        this.choices = Arrays.asList(choices);
+        this.type = String.join("|", choices);
+    }
+
+    @Override
+    public String process(String argument) throws BadArgumentTypeException
+    {
+        if (!choices.contains(argument))
+        {
+            throw new BadArgumentTypeException("Can only be one of : " + String.join(", ", choices) + "; but not '" + argument + "'", argument, type);
+        }
+
+        return argument;
+    }
+
+    @Override
+    public String[] createArray()
+    {
+        return new String[0];
+    }
+
+    public List<String> getChoices()
+    {
+        return choices;
+    }
+}
@@ -60,9 +60,15 @@ public class CommandAccessor
         return this;
     }
 
+    /**
+     * Add a sub command, its handler is created when it is first called
+     */
     public SubCommandAccessor sub(String path, Class<? extends CommandHandler> handler)
     {
-        return sub(path, module.injector().getInstance(handler));
+        PathCompiler compiler = new PathCompiler(path);
+        compiler.compile();
+
+        return sub(new KrobotCommand(compiler.label(), compiler.args(), handler, () -> module.injector().getInstance(handler)));
     }
 
     public SubCommandAccessor sub(String path, CommandHandler handler)
@@ -70,9 +76,12 @@ public class CommandAccessor
         PathCompiler compiler = new PathCompiler(path);
         compiler.compile();
 
-        KrobotCommand sub = new KrobotCommand(compiler.label(), compiler.args(), handler);
-        this.command.getSubCommands().add(sub);
+        return sub(new KrobotCommand(compiler.label(), compiler.args(), handler));
+    }
 
+    private SubCommandAccessor sub(KrobotCommand sub)
+    {
+        this.command.getSubCommands().add(sub);
         return new SubCommandAccessor(module, this, sub);
     }
 
@@ -23,16 +23,27 @@ public class CommandArgument
     private boolean required;
     private String key;
     private String type;
-    private ArgumentFactory factory;
+    private volatile ArgumentFactory factory;
     private boolean list;
+    private int slot;
 
+    /**
+     * Create an argument without slot, it is given the index of the argument
+     * in its command when the command is compiled (see {@link ArgumentBinder})
+     */
     public CommandArgument(boolean required, String key, String type, ArgumentFactory factory, boolean list)
+    {
+        this(required, key, type, factory, list, -1);
+    }
+
+    public CommandArgument(boolean required, String key, String type, ArgumentFactory factory, boolean list, int slot)
     {
         this.required = required;
         this.key = key;
         this.type = type;
         this.factory = factory;
         this.list = list;
+        this.slot = slot;
     }
 
     public boolean isRequired()
@@ -50,8 +61,28 @@ public class CommandArgument
         return type;
     }
 
+    /**
+     * @return The factory of the argument type, looked up on first call if
+     *         the type wasn't registered yet when the path was compiled
+     *
+     * @throws IllegalStateException If the type is still unknown
+     */
     public ArgumentFactory getFactory()
     {
+        ArgumentFactory factory = this.factory;
+
+        if (factory == null)
+        {
+            factory = CommandManager.getArgumentFactory(type);
+
+            if (factory == null)
+            {
+                throw new IllegalStateException("Unknown argument type '" + type + "' of argument '" + key + "'");
+            }
+
+            this.factory = factory;
+        }
+
         return factory;
     }
 
@@ -60,6 +91,19 @@ public class CommandArgument
         return list;
     }
 
+    /**
+     * @return The index of this argument value in the {@link ArgumentMap}, -1 if not assigned yet
+     */
+    public int getSlot()
+    {
+        return slot;
+    }
+
+    void assignSlot(int slot)
+    {
+        this.slot = slot;
+    }
+
     @Override
     public String toString()
     {
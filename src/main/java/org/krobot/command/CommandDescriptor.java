@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.command;
+
+/**
+ * The content of a {@link Command} annotation with its path already
+ * parsed, created by the classes generated by the Krobot annotation
+ * processor (see {@link CommandRegistry})
+ */
+public final class CommandDescriptor
+{
+    private final String path;
+    private final String label;
+    private final Argument[] arguments;
+    private final String description;
+    private final String[] aliases;
+    private final boolean errorMP;
+    private final boolean handleMP;
+    private final Class<? extends CommandFilter>[] filters;
+    private final Class<? extends CommandHandler>[] subs;
+
+    public CommandDescriptor(String path, String label, Argument[] arguments, String description, String[] aliases, boolean errorMP, boolean handleMP, Class<? extends CommandFilter>[] filters, Class<? extends CommandHandler>[] subs)
+    {
+        this.path = path;
+        this.label = label;
+        this.arguments = arguments;
+        this.description = description;
+        this.aliases = aliases;
+        this.errorMP = errorMP;
+        this.handleMP = handleMP;
+        this.filters = filters;
+        this.subs = subs;
+    }
+
+    /**
+     * Create the arguments of the command, with the factories of their types
+     *
+     * @return The arguments, like the ones given by {@link PathCompiler#args()}
+     */
+    public CommandArgument[] createArguments()
+    {
+        CommandArgument[] result = new CommandArgument[arguments.length];
+
+        for (int i = 0; i < arguments.length; i++)
+        {
+            Argument argument = arguments[i];
+            ArgumentFactory factory = argument.choices != null ? new ChoiceArgumentFactory(argument.choices) : CommandManager.getArgumentFactory(argument.type);
+
+            // An unknown type may be registered by a module initialized in parallel, see CommandArgument#getFactory()
+            result[i] = new CommandArgument(argument.required, argument.name, argument.type, factory, argument.list, i);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param required If the argument is required
+     * @param name The name of the argument
+     * @param type The name of the argument type (see {@link CommandManager#getArgumentFactory(String)})
+     * @param list If the argument takes all the remaining values
+     */
+    public static Argument argument(boolean required, String name, String type, boolean list)
+    {
+        return new Argument(required, name, type, list, null);
+    }
+
+    /**
+     * @param required If the argument is required
+     * @param name The name of the argument
+     * @param choices The values the argument can take
+     */
+    public static Argument choice(boolean required, String name, String... choices)
+    {
+        return new Argument(required, name, String.join("|", choices), false, choices);
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public String getLabel()
+    {
+        return label;
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    public String[] getAliases()
+    {
+        return aliases;
+    }
+
+    public boolean isErrorMP()
+    {
+        return errorMP;
+    }
+
+    public boolean isHandleMP()
+    {
+        return handleMP;
+    }
+
+    public Class<? extends CommandFilter>[] getFilters()
+    {
+        return filters;
+    }
+
+    public Class<? extends CommandHandler>[] getSubs()
+    {
+        return subs;
+    }
+
+    public static final class Argument
+    {
+        private final boolean required;
+        private final String name;
+        private final String type;
+        private final boolean list;
+        private final String[] choices;
+
+        private Argument(boolean required, String name, String type, boolean list, String[] choices)
+        {
+            this.required = required;
+            this.name = name;
+            this.type = type;
+            this.list = list;
+            this.choices = choices;
+        }
+    }
+}
@@ -22,23 +22,24 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import java.util.function.Function;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.krobot.MessageContext;
-import org.krobot.permission.BotNotAllowedException;
-import org.krobot.permission.BotRequires;
-import org.krobot.permission.UserNotAllowedException;
-import org.krobot.permission.UserRequires;
+import org.krobot.command.CommandRouter.Route;
 import org.krobot.runtime.KrobotRuntime;
+import org.krobot.runtime.PrefixResolver;
+import org.krobot.util.ColoredLogger;
+import org.krobot.util.Tokens;
 import org.krobot.util.UserUtils;
 
 import net.dv8tion.jda.api.EmbedBuilder;
@@ -50,12 +51,15 @@ import net.dv8tion.jda.api.requests.RestAction;
 @Singleton
 public class CommandManager
 {
-    private static final Map<String, ArgumentFactory> argumentFactories = new HashMap<>();
+    private static final ColoredLogger log = ColoredLogger.getLogger("CommandManager");
+    private static final Map<String, ArgumentFactory> argumentFactories = new ConcurrentHashMap<>();
+    private static Map<Class<? extends CommandHandler>, CommandDescriptor> descriptors;
 
     private KrobotRuntime runtime;
 
     private List<KrobotCommand> commands;
     private List<CommandFilter> filters;
+    private CommandRouter router;
 
     @Inject
     public CommandManager(KrobotRuntime runtime)
@@ -66,236 +70,206 @@ public class CommandManager
         this.filters = new ArrayList<>();
     }
 
-    public void handle(MessageContext context)
+    public CompletableFuture<Void> handle(MessageContext context)
     {
         String content = context.getMessage().getContentRaw().trim();
-        String prefix = runtime.getFilterRunner().getPrefix(context);
+        PrefixResolver.Match prefix = runtime.getPrefixResolver().match(context, content, 0);
 
-        String botMention = "<@!" + runtime.jda().getSelfUser().getId() + "> ";
-
-        if (content.startsWith(botMention) && !content.equals(botMention) && !runtime.getRootModule().getModule().getClass().isAnnotationPresent(DisableMention.class))
+        if (prefix == null)
         {
-            prefix = botMention;
+            return CompletableFuture.completedFuture(null);
         }
 
-        if (prefix != null && (!content.startsWith(prefix) || content.equals(prefix)))
-        {
-            return;
-        }
+        Tokens tokens = Tokens.tokenize(content, prefix.getEnd());
 
-        if (content.startsWith(botMention))
+        if (tokens.size() == 0)
         {
-            content = content.substring(botMention.length());
-        }
-        else if (prefix != null && content.startsWith(prefix))
-        {
-            content = content.substring(prefix.length());
+            return CompletableFuture.completedFuture(null);
         }
 
-        String[] split = splitWithQuotes(content);
+        Route route = router == null ? null : router.find(content, tokens.start(0), tokens.end(0));
 
-        if (split.length == 0)
+        if (route == null)
         {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        String label = split[0];
-
-        Optional<KrobotCommand> optional = commands.stream().filter(c -> {
-            if (c.getAliases() != null)
-            {
-                Optional<String> alias = Stream.of(c.getAliases()).filter(a -> a.equalsIgnoreCase(label)).findFirst();
-
-                if (alias.isPresent())
-                {
-                    return true;
-                }
-            }
-
-            return c.getLabel().equalsIgnoreCase(label);
-        }).findFirst();
-
-        if (!optional.isPresent())
+        if (route.getCommand().getPlan().isMentionDisabled() && prefix.isMention())
         {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        KrobotCommand command = optional.get();
-        String[] args = ArrayUtils.subarray(split, 1, split.length);
+        int depth = 1;
+        Route sub;
 
-        if (command.getHandler().getClass().isAnnotationPresent(DisableMention.class) && Objects.equals(prefix, botMention))
+        while (depth < tokens.size() && (sub = route.sub(content, tokens.start(depth), tokens.end(depth))) != null)
         {
-            return;
+            route = sub;
+            depth++;
         }
 
-        if (args.length > 0)
-        {
-            Optional<KrobotCommand> sub = command.getSubCommands().stream().filter(s -> s.getLabel().equalsIgnoreCase(args[0]) || ArrayUtils.contains(s.getAliases(), args[0])).findFirst();
-
-            if (sub.isPresent())
-            {
-                try
-                {
-                    execute(context, sub.get(), ArrayUtils.subarray(args, 1, args.length));
-                }
-                catch (Exception e)
-                {
-                    runtime.getExceptionHandler().handle(context, command, args, e);
-                }
-
-                return;
-            }
-        }
+        KrobotCommand command = route.getCommand();
+        String[] args = tokens.toArray(depth);
 
         try
         {
-            execute(context, command, args);
+            return execute(context, command, args).exceptionally(t -> {
+                runtime.getExceptionHandler().handle(context, command, args, unwrap(t));
+                return null;
+            });
         }
         catch (Exception e)
         {
             runtime.getExceptionHandler().handle(context, command, args, e);
+            return CompletableFuture.completedFuture(null);
         }
     }
 
-    public void execute(MessageContext context, KrobotCommand command, String[] args) throws Exception
+    /**
+     * Execute a command. Nothing blocks while waiting for Discord: the
+     * steps needing it (retrieving the caller member, opening a private
+     * channel, sending the result) are chained to the returned Future.<br><br>
+     *
+     * Exceptions thrown by the handler are given to the {@link ExceptionHandler},
+     * the other ones (missing permission, wrong arguments...) complete the Future.
+     *
+     * @param context The context of the call
+     * @param command The command to execute
+     * @param args The raw arguments of the call
+     *
+     * @return A Future completed when the command was executed and its result sent
+     */
+    public CompletableFuture<Void> execute(MessageContext context, KrobotCommand command, String[] args)
     {
-        CommandHandler handler = command.getHandler();
+        CommandPlan plan = command.getPlan();
 
-        if (handler.getClass().isAnnotationPresent(BotRequires.class))
-        {
-            for (Permission perm : handler.getClass().getAnnotation(BotRequires.class).value())
+        return then(plan.check(context), ok -> {
+            ArgumentMap argsMap = bind(plan, args);
+
+            CommandCall call = new CommandCall(command);
+            plan.filter(call, context, argsMap);
+
+            if (call.isCancelled())
             {
-                if (!context.botHasPermission(perm))
-                {
-                    throw new BotNotAllowedException(perm);
-                }
+                return CompletableFuture.completedFuture(null);
             }
-        }
 
-        if (handler.getClass().isAnnotationPresent(UserRequires.class))
-        {
-            for (Permission perm : handler.getClass().getAnnotation(UserRequires.class).value())
+            if (plan.isTyping() && context.getChannel() != null)
             {
-                if (!context.hasPermission(perm))
-                {
-                    throw new UserNotAllowedException(perm);
-                }
+                context.getChannel().sendTyping().queue();
             }
-        }
 
-        if (handler.getClass().isAnnotationPresent(GuildOnly.class) && context.isFromPrivateMessage())
-        {
-            throw new PrivateChannelNotSupportedException();
-        }
+            CompletableFuture<MessageContext> target = CompletableFuture.completedFuture(context);
 
-        Map<String, Object> supplied = new HashMap<>();
-
-        int i;
+            if (command.getHandleMP())
+            {
+                target = context.getUser().openPrivateChannel().submit().thenApply(channel -> new MessageContext(context.getJDA(), context.getUser(), context.getMessage(), channel));
+            }
 
-        for (i = 0; i < command.getArguments().length; i++)
-        {
-            CommandArgument arg = command.getArguments()[i];
+            return then(target, handlerContext -> {
+                Object result;
 
-            if (i > args.length - 1)
-            {
-                if (arg.isRequired())
+                try
                 {
-                    throw new WrongArgumentNumberException(command, args.length);
+                    result = command.getHandler().handle(handlerContext, argsMap);
+                }
+                catch (Throwable t)
+                {
+                    runtime.getExceptionHandler().handle(handlerContext, command, args, t);
+                    return CompletableFuture.completedFuture(null);
                 }
 
-                break;
-            }
-
-            if (arg.isList())
-            {
-                List list = new ArrayList();
-
-                for (; i < args.length; i++)
+                if (context.botHasPermission(Permission.MESSAGE_MANAGE) && context.getGuild() != null /* Check we are not in dm */ )
                 {
-                    list.add(arg.getFactory().process(args[i]));
+                    context.getMessage().delete().reason("Command triggered").queue(null, ignored -> {});
                 }
 
-                supplied.put(arg.getKey(), list.toArray(arg.getFactory().createArray()));
-            }
-            else
-            {
-                supplied.put(arg.getKey(), arg.getFactory().process(args[i]));
-            }
-        }
+                return reply(handlerContext, result);
+            });
+        });
+    }
 
-        if (i < args.length - 1)
+    protected CompletableFuture<Void> reply(MessageContext context, Object result)
+    {
+        CompletableFuture<?> sent;
+
+        if (result == null)
         {
-            throw new WrongArgumentNumberException(command, args.length);
+            return CompletableFuture.completedFuture(null);
         }
-
-        ArgumentMap argsMap = new ArgumentMap(supplied);
-
-        CommandCall call = new CommandCall(command);
-
-        if (command.getFilters() != null)
+        else if (result instanceof EmbedBuilder)
         {
-            for (CommandFilter filter : command.getFilters())
-            {
-                filter.filter(call, context, argsMap);
-            }
+            sent = context.send((EmbedBuilder) result);
         }
-
-        if (!call.isCancelled())
+        else if (result instanceof MessageEmbed)
+        {
+            sent = context.send((MessageEmbed) result);
+        }
+        else if (result instanceof RestAction)
+        {
+            sent = ((RestAction<?>) result).submit();
+        }
+        else if (result instanceof CompletionStage)
         {
-            if (!command.getHandler().getClass().isAnnotationPresent(NoTyping.class) && context.getChannel() != null)
+            sent = ((CompletionStage<?>) result).toCompletableFuture();
+        }
+        else if (result instanceof Future)
+        {
+            return CompletableFuture.completedFuture(null);
+        }
+        else
+        {
+            sent = context.send(result.toString());
+        }
+
+        return sent.handle((value, t) -> {
+            if (t != null)
             {
-                context.getChannel().sendTyping().queue();
+                log.error("Error while sending the result of a command", unwrap(t));
             }
 
-            final MessageContext originalContext = context;
-            Object result;
+            return null;
+        });
+    }
 
-            try
-            {
-                if (command.getHandleMP())
-                	context = new MessageContext(context.getJDA(), context.getUser(), context.getMessage(), context.getUser().openPrivateChannel().complete());
+    /**
+     * Chain an action to a stage. If the stage is still waiting for Discord, the
+     * action is run on the runtime pool instead of on the JDA callback thread.
+     */
+    private <T, U> CompletableFuture<U> then(CompletableFuture<T> stage, Function<? super T, ? extends CompletionStage<U>> action)
+    {
+        Executor executor = runtime.getExecutor();
 
-                result = command.getHandler().handle(context, argsMap);
-            }
-            catch (Throwable t)
-            {
-                runtime.getExceptionHandler().handle(context, command, args, t);
-                return;
-            }
+        if (stage.isDone() || executor == null)
+        {
+            return stage.thenCompose(action);
+        }
 
-            if (originalContext.botHasPermission(Permission.MESSAGE_MANAGE) && originalContext.getGuild() != null /* Check we are not in dm */ )
-            {
-                try
-                {
-                    originalContext.getMessage().delete().reason("Command triggered").complete();
-                }
-                catch (Exception ignored)
-                {
-                }
-            }
+        return stage.thenComposeAsync(action, executor);
+    }
 
-            if (result != null)
-            {
-                if (result instanceof EmbedBuilder)
-                {
-                    context.send((EmbedBuilder) result);
-                }
-                else if (result instanceof MessageEmbed)
-                {
-                    context.send((MessageEmbed) result);
-                }
-                else if (result instanceof RestAction)
-                {
-                    ((RestAction) result).queue();
-                }
-                else if (!(result instanceof Future))
-                {
-                    context.send(result.toString());
-                }
-            }
+    private static ArgumentMap bind(CommandPlan plan, String[] args)
+    {
+        try
+        {
+            return plan.getBinder().bind(args);
+        }
+        catch (WrongArgumentNumberException | BadArgumentTypeException e)
+        {
+            throw new CompletionException(e);
         }
     }
 
+    private static Throwable unwrap(Throwable t)
+    {
+        while (t instanceof CompletionException && t.getCause() != null)
+        {
+            t = t.getCause();
+        }
+
+        return t;
+    }
+
     /**
      * Split a message from whitespaces, ignoring the one in quotes.<br><br>
      *
@@ -313,23 +287,45 @@ public class CommandManager
      */
     public static String[] splitWithQuotes(String line)
     {
-        ArrayList<String> matchList = new ArrayList<>();
-        Pattern regex = Pattern.compile("[^\\s\"]+|\"([^\"]*)\"");
-        Matcher matcher = regex.matcher(line);
+        return Tokens.tokenize(line).toArray();
+    }
+
+    /**
+     * Compile the routing table and the execution plans of the registered
+     * commands. Must be called again if {@link #getCommands()} is modified
+     * after it.
+     */
+    public void compile()
+    {
+        this.router = CommandRouter.compile(commands);
+
+        compile(commands);
+    }
 
-        while (matcher.find())
+    private void compile(List<KrobotCommand> commands)
+    {
+        for (KrobotCommand command : commands)
         {
-            if (matcher.group(1) != null)
+            try
             {
-                matchList.add(matcher.group(1));
+                command.compile();
             }
-            else
+            catch (IllegalStateException e)
+            {
+                // By example an argument type that no module registered
+                throw new IllegalStateException("Can't compile command '" + command.getLabel() + "'", e);
+            }
+
+            if (command.getSubCommands() != null)
             {
-                matchList.add(matcher.group());
+                compile(command.getSubCommands());
             }
         }
+    }
 
-        return matchList.toArray(new String[matchList.size()]);
+    public CommandRouter getRouter()
+    {
+        return router;
     }
 
     public List<KrobotCommand> getCommands()
@@ -342,6 +338,14 @@ public class CommandManager
         return filters;
     }
 
+    /**
+     * Register an argument type. Modules are initialized in parallel, so paths
+     * may be compiled before the type is registered: arguments resolve their
+     * type when the commands are compiled, after the initialization.
+     *
+     * @param name The name of the type, used in the paths
+     * @param factory The factory parsing the values of the type
+     */
     public static void registerArgumentFactory(String name, ArgumentFactory factory)
     {
         argumentFactories.put(name, factory);
@@ -352,6 +356,22 @@ public class CommandManager
         return argumentFactories.get(key);
     }
 
+    /**
+     * @param command A command class
+     *
+     * @return Its descriptor generated by the annotation processor (see {@link CommandRegistry}), or null if there is none
+     */
+    public static synchronized CommandDescriptor getDescriptor(Class<? extends CommandHandler> command)
+    {
+        if (descriptors == null)
+        {
+            descriptors = new HashMap<>();
+            ServiceLoader.load(CommandRegistry.class).forEach(registry -> registry.register(descriptors));
+        }
+
+        return descriptors.get(command);
+    }
+
     static
     {
         registerArgumentFactory("string", new ArgumentFactory<String>()
@@ -369,47 +389,47 @@ public class CommandManager
             }
         });
 
-        registerArgumentFactory("number", new ArgumentFactory<Integer>()
-        {
-            @Override
-            public Integer process(String argument) throws BadArgumentTypeException
+        registerArgumentFactory("number", (IntArgumentFactory) argument -> {
+            try
             {
-                try
-                {
-                    return Integer.parseInt(argument);
-                }
-                catch (NumberFormatException e)
-                {
-                    throw new BadArgumentTypeException(argument, "number");
-                }
+                return Integer.parseInt(argument);
             }
+            catch (NumberFormatException e)
+            {
+                throw new BadArgumentTypeException(argument, "number");
+            }
+        });
 
-            @Override
-            public Integer[] createArray()
+        registerArgumentFactory("long", (LongArgumentFactory) argument -> {
+            try
             {
-                return new Integer[0];
+                return Long.parseLong(argument);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new BadArgumentTypeException(argument, "long");
             }
         });
 
-        registerArgumentFactory("float", new ArgumentFactory<Float>()
-        {
-            @Override
-            public Float process(String argument) throws BadArgumentTypeException
+        registerArgumentFactory("float", (FloatArgumentFactory) argument -> {
+            try
             {
-                try
-                {
-                    return Float.parseFloat(argument);
-                }
-                catch (NumberFormatException e)
-                {
-                    throw new BadArgumentTypeException(argument, "float");
-                }
+                return Float.parseFloat(argument);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new BadArgumentTypeException(argument, "float");
             }
+        });
 
-            @Override
-            public Float[] createArray()
+        registerArgumentFactory("double", (DoubleArgumentFactory) argument -> {
+            try
+            {
+                return Double.parseDouble(argument);
+            }
+            catch (NumberFormatException e)
             {
-                return new Float[0];
+                throw new BadArgumentTypeException(argument, "double");
             }
         });
 
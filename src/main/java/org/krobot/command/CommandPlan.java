@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.command;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import net.dv8tion.jda.api.Permission;
+import org.krobot.MessageContext;
+import org.krobot.permission.BotNotAllowedException;
+import org.krobot.permission.BotRequires;
+import org.krobot.permission.UserNotAllowedException;
+import org.krobot.permission.UserRequires;
+
+/**
+ * The Command Plan<br><br>
+ *
+ *
+ * Everything needed to execute a command, read once from its handler
+ * annotations when the command is registered so that executing it
+ * doesn't need any reflection.<br><br>
+ *
+ * A plan is immutable, if the command is modified a new plan must be
+ * compiled (see {@link KrobotCommand#getPlan()}).
+ */
+public class CommandPlan
+{
+    private static final Permission[] NO_PERMISSIONS = new Permission[0];
+    private static final CommandFilter[] NO_FILTERS = new CommandFilter[0];
+
+    private final KrobotCommand command;
+
+    private final Permission[] botPermissions;
+    private final Permission[] userPermissions;
+    private final boolean guildOnly;
+    private final boolean typing;
+    private final boolean mentionDisabled;
+
+    private final ArgumentBinder binder;
+    private final CommandFilter[] filters;
+
+    private CommandPlan(KrobotCommand command, Permission[] botPermissions, Permission[] userPermissions, boolean guildOnly, boolean typing, boolean mentionDisabled, ArgumentBinder binder, CommandFilter[] filters)
+    {
+        this.command = command;
+        this.botPermissions = botPermissions;
+        this.userPermissions = userPermissions;
+        this.guildOnly = guildOnly;
+        this.typing = typing;
+        this.mentionDisabled = mentionDisabled;
+        this.binder = binder;
+        this.filters = filters;
+    }
+
+    /**
+     * Compile the plan of a command from its current state
+     *
+     * @param command The command to compile
+     *
+     * @return The compiled plan
+     */
+    public static CommandPlan compile(KrobotCommand command)
+    {
+        // Not creating the handler, it may be created only when the command is called
+        Class<?> handler = command.getHandlerType();
+
+        BotRequires bot = handler.getAnnotation(BotRequires.class);
+        UserRequires user = handler.getAnnotation(UserRequires.class);
+
+        return new CommandPlan(command,
+                               bot == null ? NO_PERMISSIONS : bot.value().clone(),
+                               user == null ? NO_PERMISSIONS : user.value().clone(),
+                               handler.isAnnotationPresent(GuildOnly.class),
+                               !handler.isAnnotationPresent(NoTyping.class),
+                               handler.isAnnotationPresent(DisableMention.class),
+                               new ArgumentBinder(command),
+                               command.getFilters() == null ? NO_FILTERS : command.getFilters().toArray(NO_FILTERS));
+    }
+
+    public KrobotCommand getCommand()
+    {
+        return command;
+    }
+
+    /**
+     * @return The permissions the bot needs to execute the command (from {@link BotRequires})
+     */
+    public Permission[] getBotPermissions()
+    {
+        return botPermissions.clone();
+    }
+
+    /**
+     * @return The permissions the caller needs to execute the command (from {@link UserRequires})
+     */
+    public Permission[] getUserPermissions()
+    {
+        return userPermissions.clone();
+    }
+
+    /**
+     * @return If the command can't be called from private messages (from {@link GuildOnly})
+     */
+    public boolean isGuildOnly()
+    {
+        return guildOnly;
+    }
+
+    /**
+     * @return If the bot should be shown typing while executing the command (unless {@link NoTyping})
+     */
+    public boolean isTyping()
+    {
+        return typing;
+    }
+
+    /**
+     * @return If the command can't be called by mentioning the bot (from {@link DisableMention})
+     */
+    public boolean isMentionDisabled()
+    {
+        return mentionDisabled;
+    }
+
+    public ArgumentBinder getBinder()
+    {
+        return binder;
+    }
+
+    /**
+     * @return The filters of the command, in their execution order
+     */
+    public CommandFilter[] getFilters()
+    {
+        return filters.clone();
+    }
+
+    /**
+     * Check the permissions required by the command, and that it can be
+     * called from the context channel. The caller member is retrieved
+     * without blocking if it isn't cached.
+     *
+     * @param context The context of the call
+     *
+     * @return A Future completed when the check passed, or completed exceptionally with
+     *         a {@link BotNotAllowedException}, a {@link UserNotAllowedException} or
+     *         a {@link PrivateChannelNotSupportedException}
+     */
+    public CompletableFuture<Void> check(MessageContext context)
+    {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        for (Permission perm : botPermissions)
+        {
+            if (!context.botHasPermission(perm))
+            {
+                result.completeExceptionally(new BotNotAllowedException(perm));
+                return result;
+            }
+        }
+
+        if (guildOnly && context.isFromPrivateMessage())
+        {
+            result.completeExceptionally(new PrivateChannelNotSupportedException());
+            return result;
+        }
+
+        if (userPermissions.length == 0)
+        {
+            result.complete(null);
+            return result;
+        }
+
+        return context.retrieveMember().thenAccept(member -> {
+            for (Permission perm : userPermissions)
+            {
+                if (!context.hasPermission(member, perm))
+                {
+                    throw new CompletionException(new UserNotAllowedException(perm));
+                }
+            }
+        });
+    }
+
+    /**
+     * Run the filter chain of the command
+     *
+     * @param call The call to filter
+     * @param context The context of the call
+     * @param args The arguments of the call
+     */
+    public void filter(CommandCall call, MessageContext context, ArgumentMap args)
+    {
+        for (CommandFilter filter : filters)
+        {
+            filter.filter(call, context, args);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.command;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * A registry of commands generated at compile time by the Krobot
+ * annotation processor (artifact krobot-framework, classifier
+ * 'processor'), which validates the {@link Command} paths.<br><br>
+ *
+ * The registries are found using a {@link ServiceLoader} (see
+ * {@link CommandManager#getDescriptor(Class)}): commands having one don't
+ * need their path to be compiled at startup.
+ */
+public interface CommandRegistry
+{
+    /**
+     * @param commands The map to put the descriptors of the commands of this registry in
+     */
+    void register(Map<Class<? extends CommandHandler>, CommandDescriptor> commands);
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.command;
+
+import java.util.Arrays;
+import java.util.List;
+import org.fusesource.jansi.Ansi.Color;
+import org.krobot.util.ColoredLogger;
+
+/**
+ * The Command Router<br><br>
+ *
+ *
+ * A case-insensitive trie over the labels and aliases of the
+ * registered commands. Each command owns its own router for its
+ * sub commands, so they can be nested at any depth.<br><br>
+ *
+ * Finding a command costs one step per character of the label,
+ * whatever the number of registered commands.
+ */
+public class CommandRouter
+{
+    private static final ColoredLogger log = ColoredLogger.getLogger("CommandRouter");
+
+    private Node root;
+    private int size;
+
+    private CommandRouter()
+    {
+        this.root = new Node();
+        this.size = 0;
+    }
+
+    /**
+     * Compile the routing table of the given commands (and of all their
+     * sub commands, recursively).<br>
+     * Duplicated labels or aliases are reported, the first registered
+     * command keeps them.
+     *
+     * @param commands The commands to route
+     *
+     * @return The compiled router
+     */
+    public static CommandRouter compile(List<KrobotCommand> commands)
+    {
+        return compile(commands, "");
+    }
+
+    private static CommandRouter compile(List<KrobotCommand> commands, String parent)
+    {
+        CommandRouter router = new CommandRouter();
+
+        for (KrobotCommand command : commands)
+        {
+            Route route = new Route(command, null);
+
+            if (command.getSubCommands() != null && !command.getSubCommands().isEmpty())
+            {
+                route.subs = compile(command.getSubCommands(), parent + command.getLabel() + " ");
+            }
+
+            router.register(command.getLabel(), route, parent);
+
+            if (command.getAliases() != null)
+            {
+                for (String alias : command.getAliases())
+                {
+                    router.register(alias, route, parent);
+                }
+            }
+        }
+
+        return router;
+    }
+
+    private void register(String key, Route route, String parent)
+    {
+        Node node = root;
+
+        for (int i = 0; i < key.length(); i++)
+        {
+            node = node.getOrCreate(Character.toLowerCase(key.charAt(i)));
+        }
+
+        if (node.route == null)
+        {
+            node.route = route;
+            size++;
+        }
+        else if (node.route.command != route.command)
+        {
+            log.error(Color.RED, "Duplicated command label or alias '{}{}' (declared by '{}' and '{}') => '{}' will be kept", parent, key, node.route.command.getLabel(), route.command.getLabel(), node.route.command.getLabel());
+        }
+    }
+
+    /**
+     * Find the command with the given label or alias
+     *
+     * @param label The label, case insensitive
+     *
+     * @return The found route, or null if none matches
+     */
+    public Route find(CharSequence label)
+    {
+        return find(label, 0, label.length());
+    }
+
+    /**
+     * Find the command whose label or alias is the given part of a
+     * char sequence, without copying it
+     *
+     * @param source The sequence containing the label
+     * @param start The index of the first char of the label
+     * @param end The index after the last char of the label
+     *
+     * @return The found route, or null if none matches
+     */
+    public Route find(CharSequence source, int start, int end)
+    {
+        Node node = root;
+
+        for (int i = start; i < end && node != null; i++)
+        {
+            node = node.get(Character.toLowerCase(source.charAt(i)));
+        }
+
+        return node == null ? null : node.route;
+    }
+
+    /**
+     * @return The number of labels and aliases routed at this level
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public static class Route
+    {
+        private KrobotCommand command;
+        private CommandRouter subs;
+
+        Route(KrobotCommand command, CommandRouter subs)
+        {
+            this.command = command;
+            this.subs = subs;
+        }
+
+        public KrobotCommand getCommand()
+        {
+            return command;
+        }
+
+        /**
+         * Find a sub command of this route
+         *
+         * @param label The label of the sub command, case insensitive
+         *
+         * @return The found route, or null if none matches
+         */
+        public Route sub(CharSequence label)
+        {
+            return subs == null ? null : subs.find(label);
+        }
+
+        /**
+         * Find a sub command of this route, see {@link CommandRouter#find(CharSequence, int, int)}
+         *
+         * @param source The sequence containing the label
+         * @param start The index of the first char of the label
+         * @param end The index after the last char of the label
+         *
+         * @return The found route, or null if none matches
+         */
+        public Route sub(CharSequence source, int start, int end)
+        {
+            return subs == null ? null : subs.find(source, start, end);
+        }
+    }
+
+    private static class Node
+    {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Route route;
+
+        Node get(char c)
+        {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+
+        Node getOrCreate(char c)
+        {
+            int index = Arrays.binarySearch(keys, c);
+
+            if (index >= 0)
+            {
+                return children[index];
+            }
+
+            index = -index - 1;
+
+            char[] keys = new char[this.keys.length + 1];
+            Node[] children = new Node[this.children.length + 1];
+
+            System.arraycopy(this.keys, 0, keys, 0, index);
+            System.arraycopy(this.children, 0, children, 0, index);
+            System.arraycopy(this.keys, index, keys, index + 1, this.keys.length - index);
+            System.arraycopy(this.children, index, children, index + 1, this.children.length - index);
+
+            Node node = new Node();
+            keys[index] = c;
+            children[index] = node;
+
+            this.keys = keys;
+            this.children = children;
+
+            return node;
+        }
+    }
+}
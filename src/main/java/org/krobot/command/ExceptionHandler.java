@@ -24,9 +24,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
 import javax.inject.Singleton;
-import net.dv8tion.jda.api.entities.PrivateChannel;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.krobot.Krobot;
 import org.krobot.MessageContext;
@@ -51,7 +49,7 @@ public class ExceptionHandler
         if (handler.isPresent())
         {
         	if (command.getErrorMP())
-        		handler.get().handle(new MessageContext(context.getJDA(), context.getUser(), context.getMessage(), context.getUser().openPrivateChannel().complete()), t);
+        		context.getUser().openPrivateChannel().queue(channel -> handler.get().handle(new MessageContext(context.getJDA(), context.getUser(), context.getMessage(), channel), t));
         	else
         		handler.get().handle(context, t);
             return;
@@ -61,19 +59,15 @@ public class ExceptionHandler
 
         String report = makeCrashReport(t, command, args, context);
 
-        try
-        {
-            MessageUtils.deleteAfter(context.send(Dialog.error("Command crashed !", "A crash report has been sent to you " + context.getUser().getAsMention() + " . Please send it to the developer as soon as possible !")).get(), 5000);
-        }
-        catch (InterruptedException | ExecutionException ignored)
-        {
-        }
+        context.send(Dialog.error("Command crashed !", "A crash report has been sent to you " + context.getUser().getAsMention() + " . Please send it to the developer as soon as possible !"))
+               .thenAccept(message -> MessageUtils.deleteAfter(message, 5000));
 
-        PrivateChannel channel = context.getUser().openPrivateChannel().complete();
-        for (String message : MessageUtils.splitMessageKeepLines(report, MessageUtils.MAX_MESSAGE_CHARS - Markdown.code("").length()))
-        {
-            channel.sendMessage(Markdown.code(message)).queue();
-        }
+        context.getUser().openPrivateChannel().queue(channel -> {
+            for (String message : MessageUtils.splitMessageKeepLines(report, MessageUtils.MAX_MESSAGE_CHARS - Markdown.code("").length()))
+            {
+                channel.sendMessage(Markdown.code(message)).queue();
+            }
+        });
     }
 
     /**
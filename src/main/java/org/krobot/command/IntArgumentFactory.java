@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.command;
+
+/**
+ * An {@link ArgumentFactory} producing int values, that are stored
+ * in the {@link ArgumentMap} without boxing (see {@link ArgumentMap#getInt(String)}).
+ */
+@FunctionalInterface
+public interface IntArgumentFactory extends ArgumentFactory<Integer>
+{
+    int processInt(String argument) throws BadArgumentTypeException;
+
+    @Override
+    default Integer process(String argument) throws BadArgumentTypeException
+    {
+        return processInt(argument);
+    }
+
+    @Override
+    default Integer[] createArray()
+    {
+        return new Integer[0];
+    }
+}
@@ -20,6 +20,7 @@ package org.krobot.command;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class KrobotCommand
 {
@@ -31,8 +32,10 @@ public class KrobotCommand
     private boolean handleMP; //private message only
     private List<CommandFilter> filters;
     private List<KrobotCommand> subs;
-    private CommandHandler handler;
-
+    private volatile CommandHandler handler;
+    private Class<? extends CommandHandler> handlerType;
+    private Supplier<? extends CommandHandler> handlerFactory;
+    private volatile CommandPlan plan;
 
     public KrobotCommand(String label, CommandArgument[] arguments, CommandHandler handler)
     {
@@ -44,7 +47,24 @@ public class KrobotCommand
         this(label, arguments, "", new String[] {}, false, false, new ArrayList<>(), handler, new ArrayList<>());
     }
 
+    /**
+     * Create a command whose handler is only created when the command is first called
+     *
+     * @param handlerType The class of the handler
+     * @param handlerFactory The function creating the handler, called once
+     */
+    public KrobotCommand(String label, CommandArgument[] arguments, Class<? extends CommandHandler> handlerType, Supplier<? extends CommandHandler> handlerFactory)
+    {
+        this(label, arguments, "", new String[] {}, false, false, new ArrayList<>(), handlerType, handlerFactory, new ArrayList<>());
+    }
+
     public KrobotCommand(String label, CommandArgument[] arguments, String description, String[] aliases, boolean errorMP, boolean handleMP, List<CommandFilter> filters, CommandHandler handler, List<KrobotCommand> subs)
+    {
+        this(label, arguments, description, aliases, errorMP, handleMP, filters, handler == null ? null : handler.getClass(), null, subs);
+        this.handler = handler;
+    }
+
+    public KrobotCommand(String label, CommandArgument[] arguments, String description, String[] aliases, boolean errorMP, boolean handleMP, List<CommandFilter> filters, Class<? extends CommandHandler> handlerType, Supplier<? extends CommandHandler> handlerFactory, List<KrobotCommand> subs)
     {
         this.label = label;
         this.aliases = aliases;
@@ -54,7 +74,8 @@ public class KrobotCommand
         this.handleMP = handleMP;
         this.filters = filters;
         this.subs = subs;
-        this.handler = handler;
+        this.handlerType = handlerType;
+        this.handlerFactory = handlerFactory;
     }
 
     public String getLabel()
@@ -85,6 +106,7 @@ public class KrobotCommand
     public void setArguments(CommandArgument[] arguments)
     {
         this.arguments = arguments;
+        this.plan = null;
     }
 
     public String getDescription()
@@ -127,14 +149,67 @@ public class KrobotCommand
         return subs;
     }
 
+    /**
+     * @return The handler of the command, created on the first call if the command was given a handler factory
+     */
     public CommandHandler getHandler()
     {
-        return handler;
+        CommandHandler handler = this.handler;
+
+        if (handler != null)
+        {
+            return handler;
+        }
+
+        synchronized (this)
+        {
+            if (this.handler == null && handlerFactory != null)
+            {
+                this.handler = handlerFactory.get();
+                this.handlerFactory = null;
+            }
+
+            return this.handler;
+        }
     }
 
-    public void setHandler(CommandHandler handler)
+    public synchronized void setHandler(CommandHandler handler)
     {
         this.handler = handler;
+        this.handlerType = handler == null ? null : handler.getClass();
+        this.handlerFactory = null;
+        this.plan = null;
+    }
+
+    /**
+     * @return The class of the handler, without creating it
+     */
+    public synchronized Class<? extends CommandHandler> getHandlerType()
+    {
+        return handlerType;
+    }
+
+    /**
+     * Get the execution plan of this command, compiling it if it wasn't
+     * already (see {@link #compile()})
+     *
+     * @return The execution plan
+     */
+    public CommandPlan getPlan()
+    {
+        CommandPlan plan = this.plan;
+        return plan == null ? compile() : plan;
+    }
+
+    /**
+     * Compile the execution plan of this command from its current state.<br>
+     * Must be called again if its filters are modified after it.
+     *
+     * @return The compiled plan
+     */
+    public CommandPlan compile()
+    {
+        return this.plan = CommandPlan.compile(this);
     }
 
     @Override
@@ -18,233 +18,67 @@
  */
 package org.krobot.command;
 
-import java.util.ArrayList;
 import java.util.List;
 import org.fusesource.jansi.Ansi.Color;
+import org.krobot.processor.PathParser;
+import org.krobot.processor.PathParser.Argument;
 import org.krobot.util.ColoredLogger;
 
+/**
+ * Compiles a command path into its label and arguments. The path is parsed
+ * by the {@link PathParser} shared with the annotation processor, this only
+ * resolves the argument factories and reports the errors.
+ */
 public class PathCompiler
 {
     private static final ColoredLogger log = ColoredLogger.getLogger("PathCompiler");
 
     private String path;
 
-    private int cursor;
-
     private String label;
-    private List<CommandArgument> args;
+    private CommandArgument[] args;
 
     public PathCompiler(String path)
     {
         this.path = path;
-
-        this.cursor = 0;
-        this.args = new ArrayList<>();
     }
 
     public void compile()
     {
-        label = readWord();
-
-        while (true)
-        {
-            if (!hasNext())
-            {
-                break;
-            }
-
-            skipEnsure(' ');
-
-            switch (next("'[' or '<'"))
-            {
-                case '<':
-                    readArg(true);
-                    break;
-                case '[':
-                    readArg(false);
-                    break;
-                default:
-                    throw error("Expected '<' or '[' got '" + previous() + "'");
-            }
-        }
-    }
-
-    protected void readArg(boolean required)
-    {
-        int start = cursor;
-        char end = required ? '>' : ']';
-
-        String name = readWord();
+        PathParser parser = new PathParser(path);
 
-        if (args.stream().anyMatch(arg -> arg.getKey().equalsIgnoreCase(name)))
+        try
         {
-            throw error("Duplicated argument '" + name + "'", cursor - name.length() + 1, cursor);
+            parser.parse();
         }
-
-        String type = null;
-
-        char next = next("':' or '" + end + "'");
-
-        if (next == ':')
-        {
-            type = readWord();
-            next = next("'...', '|' or '" + end + "'");
-        }
-
-        ArgumentFactory factory = null;
-        boolean list = false;
-
-        if (type != null && next == '|')
-        {
-            List<String> choices = new ArrayList<>();
-            choices.add(type);
-
-            while (next == '|')
-            {
-                choices.add(readWord());
-                next = next("'|' or '" + end + "'");
-            }
-
-            type = String.join("|", choices);
-            String finalType = type;
-
-            factory = new ArgumentFactory<String>()
-            {
-                @Override
-                public String process(String argument) throws BadArgumentTypeException
-                {
-                    if (!choices.contains(argument))
-                    {
-                        throw new BadArgumentTypeException("Can only be one of : " + String.join(", ", choices) + "; but not '" + argument + "'", argument, finalType);
-                    }
-
-                    return argument;
-                }
-
-                @Override
-                public String[] createArray()
-                {
-                    return new String[0];
-                }
-            };
-        }
-        else
-        {
-            if (next == '.')
-            {
-                skipEnsure('.');
-                skipEnsure('.');
-
-                list = true;
-
-                skipEnsure(end);
-            }
-            else if (next != end)
-            {
-                throw error("Expected " + (type == null ? "':' or " : "") + "'" + end + "' got '" + next + "'");
-            }
-        }
-
-        if (args.size() > 0)
-        {
-            CommandArgument last = args.get(args.size() - 1);
-
-            if (required && !last.isRequired())
-            {
-                throw error("Can't put a required argument after an optional one", start, cursor);
-            }
-            else if (last.isList())
-            {
-                throw error("List argument must stay the last one", start, cursor);
-            }
-        }
-
-        type = type == null ? "string" : type;
-        factory = factory == null ? CommandManager.getArgumentFactory(type) : factory;
-
-        if (factory == null)
+        catch (PathParser.PathSyntaxException e)
         {
-            throw error("Unknown argument type '" + type + "'", cursor - type.length(), cursor - 1);
+            throw error(e);
         }
 
-        args.add(new CommandArgument(required, name, type, factory, list));
-    }
+        List<Argument> parsed = parser.getArgs();
 
-    protected void skipEnsure(char c)
-    {
-        char next = next("'" + c + "'");
-
-        if (next != c)
-        {
-            throw error("Expected '" + c + "' got '" + next + "'");
-        }
-    }
-
-    protected String readWord()
-    {
-        StringBuilder result = new StringBuilder();
-        char current;
+        label = parser.getLabel();
+        args = new CommandArgument[parsed.size()];
 
-        while (cursor < path.length())
+        for (int i = 0; i < args.length; i++)
         {
-            current = current();
-
-            if (!Character.isLetterOrDigit(current) && current != '-')
-            {
-                break;
-            }
+            Argument arg = parsed.get(i);
+            ArgumentFactory factory = arg.getChoices() != null
+                                      ? new ChoiceArgumentFactory(arg.getChoices().toArray(new String[0]))
+                                      : CommandManager.getArgumentFactory(arg.getType());
 
-            result.append(current);
-            cursor++;
+            // Null if the type is registered by a module initialized in parallel, it is then looked up when the command is compiled
+            args[i] = new CommandArgument(arg.isRequired(), arg.getName(), arg.getType(), factory, arg.isList(), i);
         }
-
-        return result.toString();
-    }
-
-    protected boolean hasNext()
-    {
-        return cursor < path.length();
-    }
-
-    protected char previous()
-    {
-        return path.charAt(cursor - 1);
-    }
-
-    protected char current()
-    {
-        return path.charAt(cursor);
-    }
-
-    protected char next(String expectation)
-    {
-        if (cursor >= path.length())
-        {
-            throw error("Unexpected end of path, expected '" + expectation + "'");
-        }
-
-        char val = current();
-        cursor++;
-
-        return val;
-    }
-
-    protected PathSyntaxException error(String message)
-    {
-        return error(message, cursor);
-    }
-
-    protected PathSyntaxException error(String message, int to)
-    {
-        return error(message, cursor, to);
     }
 
-    protected PathSyntaxException error(String message, int from, int to)
+    protected PathSyntaxException error(PathParser.PathSyntaxException e)
     {
         log.error("");
-        log.errorAuto("@|bold,red Error:|@ @|bold,white {}|@", message);
+        log.errorAuto("@|bold,red Error:|@ @|bold,white {}|@", e.getReason());
         log.errorAuto("    @|bold,blue -->|@ {}", path);
-        log.errorAuto("        " + repeat(' ', from - 1) + "@|bold,red ^" + repeat('^', to - from) + "|@");
+        log.errorAuto("        " + repeat(' ', e.getFrom() - 1) + "@|bold,red ^" + repeat('^', e.getTo() - e.getFrom()) + "|@");
         log.errorBold(Color.WHITE, "Aborting due to command path compilation error");
 
         return new PathSyntaxException();
@@ -269,7 +103,7 @@ public class PathCompiler
 
     public CommandArgument[] args()
     {
-        return this.args.toArray(new CommandArgument[this.args.size()]);
+        return this.args;
     }
 
     public String getPath()
@@ -41,9 +41,31 @@ public class BridgeConfig implements Config
         target.set(path + "." + key, value);
     }
 
+    @Override
+    public void push(String field, Object value)
+    {
+        target.push(path + "." + field, value);
+    }
+
     @Override
     public <T> T at(String path, T def, Class<T> type)
     {
         return target.at(this.path + "." + path, def, type);
     }
+
+    @Override
+    public void onChange(String path, ConfigListener listener)
+    {
+        target.onChange(this.path + "." + path, (config, full) -> listener.changed(this, path));
+    }
+
+    /**
+     * Compiles the path in the config at the end of the bridge chain, so
+     * using it doesn't go through the bridges anymore
+     */
+    @Override
+    public <T> ConfigPath<T> path(String path, Class<T> type)
+    {
+        return target.path(this.path + "." + path, type);
+    }
 }
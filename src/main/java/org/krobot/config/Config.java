@@ -212,4 +212,45 @@ public interface Config
 
         return array;
     }
-}
\ No newline at end of file
+
+    /**
+     * Append a value to an array of the config, without returning the new
+     * array (so configs supporting it don't need to read it back)
+     *
+     * @param field The path (see {@link #at(String)}) of the array
+     * @param value The value to append
+     */
+    default void push(String field, Object value)
+    {
+        append(field, Object[].class, value);
+    }
+
+    /**
+     * Compile a path (see {@link #at(String)}) to a value of this config,
+     * to read or write it without parsing the path again.
+     *
+     * @param path The path of the value
+     * @param type The type of the value
+     *
+     * @param <T> The type of the value
+     *
+     * @return The compiled path
+     */
+    default <T> ConfigPath<T> path(String path, Class<T> type)
+    {
+        return new ConfigPath<>(this, path, type);
+    }
+
+    /**
+     * Listen to the changes of a value of the config, either made by a set
+     * or by an external edit of the config reloaded at runtime.<br><br>
+     *
+     * <b>Configs not supporting it just never call the listener</b>
+     *
+     * @param path The path (see {@link #at(String)}) of the value to listen
+     * @param listener The listener to call when the value or one of its children changes
+     */
+    default void onChange(String path, ConfigListener listener)
+    {
+    }
+}
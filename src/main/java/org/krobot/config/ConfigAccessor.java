@@ -33,6 +33,29 @@ public class ConfigAccessor
         return this;
     }
 
+    /**
+     * Save the changes in background, at most once per window, instead of
+     * on each set
+     *
+     * @param window The flush window, in milliseconds (0 to save on each set)
+     */
+    public ConfigAccessor writeBehind(long window)
+    {
+        this.rules.setFlushWindow(window);
+        return this;
+    }
+
+    /**
+     * Store the config changes in an append-only journal instead of
+     * rewriting the whole file on each change (see {@link JournalConfig}),
+     * for configs used as small databases
+     */
+    public ConfigAccessor journaled()
+    {
+        this.rules.setStorage(ConfigRules.Storage.JOURNAL);
+        return this;
+    }
+
     public DefaultAccessor defaultIn()
     {
         return new DefaultAccessor(rules, this);
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.config;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The implementation of a config interface (see {@link ConfigProvider#bind(Class)}).<br><br>
+ *
+ * The values are all read once into a snapshot, rebuilt when one of
+ * them changes, so calling a method never reads the configs. Values and
+ * defaults are both converted to the generic return type of their method.
+ */
+final class ConfigBinding implements InvocationHandler
+{
+    private static final Gson gson = new Gson();
+
+    private final Class<?> type;
+    private final Map<Method, Integer> indexes;
+    private final ConfigPath<JsonElement>[] paths;
+    private final Type[] types;
+    private final Object[] defaults;
+
+    private volatile Object[] snapshot;
+
+    @SuppressWarnings("unchecked")
+    ConfigBinding(ConfigProvider provider, Class<?> type)
+    {
+        if (!type.isInterface())
+        {
+            throw new IllegalArgumentException(type.getName() + " isn't an interface");
+        }
+
+        Method[] methods = Stream.of(type.getMethods()).filter(method -> !Modifier.isStatic(method.getModifiers())).toArray(Method[]::new);
+
+        this.type = type;
+        this.indexes = new HashMap<>();
+        this.paths = new ConfigPath[methods.length];
+        this.types = new Type[methods.length];
+        this.defaults = new Object[methods.length];
+
+        for (int i = 0; i < methods.length; i++)
+        {
+            Method method = methods[i];
+            ConfigValue value = method.getAnnotation(ConfigValue.class);
+
+            if (value == null)
+            {
+                throw new IllegalArgumentException("Method " + name(method) + " doesn't have the @ConfigValue annotation");
+            }
+
+            if (method.getParameterCount() != 0)
+            {
+                throw new IllegalArgumentException("Method " + name(method) + " mapped to '" + value.value() + "' can't have parameters");
+            }
+
+            // Unknown configs are reported here
+            paths[i] = provider.path(value.value(), JsonElement.class);
+            types[i] = method.getGenericReturnType();
+            defaults[i] = parseDefault(method, value);
+
+            indexes.put(method, i);
+        }
+
+        this.snapshot = read();
+
+        for (int i = 0; i < methods.length; i++)
+        {
+            if (snapshot[i] == null && defaults[i] == null)
+            {
+                throw new IllegalArgumentException("Config value '" + methods[i].getAnnotation(ConfigValue.class).value() + "' (of " + name(methods[i]) + ") doesn't exist, and there is no default value");
+            }
+
+            provider.onChange(methods[i].getAnnotation(ConfigValue.class).value(), (config, path) -> refresh());
+        }
+    }
+
+    /**
+     * Rebuild the snapshot. Serialized, so a snapshot read before a change
+     * can't replace one read after it.
+     */
+    private synchronized void refresh()
+    {
+        this.snapshot = read();
+    }
+
+    private Object[] read()
+    {
+        Object[] values = new Object[paths.length];
+
+        for (int i = 0; i < paths.length; i++)
+        {
+            Object value;
+
+            try
+            {
+                JsonElement element = paths[i].get();
+                value = element == null || element.isJsonNull() ? null : gson.fromJson(element, types[i]);
+            }
+            catch (JsonParseException e)
+            {
+                value = null;
+            }
+
+            values[i] = value == null ? defaults[i] : value;
+        }
+
+        return values;
+    }
+
+    private static Object parseDefault(Method method, ConfigValue value)
+    {
+        if (value.def().isEmpty())
+        {
+            return null;
+        }
+
+        try
+        {
+            return gson.fromJson(value.def(), method.getGenericReturnType());
+        }
+        catch (JsonParseException e)
+        {
+            throw new IllegalArgumentException("Default value '" + value.def() + "' of " + name(method) + " isn't a valid " + method.getReturnType().getSimpleName(), e);
+        }
+    }
+
+    private static String name(Method method)
+    {
+        return method.getDeclaringClass().getName() + "#" + method.getName();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+        Integer index = indexes.get(method);
+
+        if (index != null)
+        {
+            return snapshot[index];
+        }
+
+        switch (method.getName())
+        {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return type.getSimpleName() + "@config";
+        }
+
+        throw new UnsupportedOperationException(method.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T createProxy()
+    {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, this);
+    }
+}
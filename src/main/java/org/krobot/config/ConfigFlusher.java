@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.config;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Config Flusher<br><br>
+ *
+ *
+ * Saves the write-behind configs in background: a changed config is saved
+ * once its flush window is elapsed, coalescing every change made during
+ * the window in one write.
+ */
+public final class ConfigFlusher
+{
+    private static final Logger log = LogManager.getLogger("ConfigFlusher");
+
+    private static final Set<FileConfig> pending = ConcurrentHashMap.newKeySet();
+    private static final Set<LazyConfigFolder> folders = ConcurrentHashMap.newKeySet();
+    private static final Set<JournalConfig> journals = ConcurrentHashMap.newKeySet();
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Config Flusher");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private ConfigFlusher()
+    {
+    }
+
+    /**
+     * Save a config once the given window is elapsed
+     *
+     * @param config The changed config
+     * @param window The flush window, in milliseconds
+     */
+    static void schedule(FileConfig config, long window)
+    {
+        if (pending.add(config))
+        {
+            scheduler.schedule(() -> flush(config), window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Save the changed files of a lazy folder at shutdown
+     *
+     * @param folder The folder
+     */
+    static void track(LazyConfigFolder folder)
+    {
+        folders.add(folder);
+    }
+
+    /**
+     * Compact and close a journaled config at shutdown
+     *
+     * @param config The config
+     */
+    static void track(JournalConfig config)
+    {
+        journals.add(config);
+    }
+
+    /**
+     * Synchronously save every changed config, called at shutdown. The
+     * journaled configs are compacted and closed.
+     */
+    public static void flushAll()
+    {
+        pending.forEach(ConfigFlusher::flush);
+        awaitScheduled();
+
+        folders.forEach(LazyConfigFolder::flush);
+        journals.forEach(ConfigFlusher::close);
+    }
+
+    /**
+     * Wait for the flush the scheduler may be running, its config isn't
+     * pending anymore but may not be written yet
+     */
+    private static void awaitScheduled()
+    {
+        try
+        {
+            // The scheduler has one thread, this runs once the current task is done
+            scheduler.submit(() -> {}).get();
+        }
+        catch (InterruptedException e)
+        {
+            log.warn("Interrupted while waiting for the scheduled config saves");
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void close(JournalConfig config)
+    {
+        try
+        {
+            config.close();
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Can't compact config " + config.getFile(), e);
+        }
+    }
+
+    private static void flush(FileConfig config)
+    {
+        if (!pending.remove(config))
+        {
+            return;
+        }
+
+        try
+        {
+            config.flush();
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Can't save config " + config.getFile(), e);
+        }
+    }
+}
@@ -49,6 +49,31 @@ public class ConfigFolder
         return this;
     }
 
+    /**
+     * Use the whole folder as one config, named after it, whose paths start
+     * by the name of a file of the folder (example guilds.1234.prefix is
+     * the prefix in guilds/1234.json).<br><br>
+     *
+     * Files are only read when first used, and at most maxLoaded of them are
+     * kept in memory: the least recently used one is saved (if changed) and
+     * dropped when another one is needed. Changes of the loaded files are
+     * only saved then or at shutdown, unless a flush window is given, or a
+     * default one is set ({@link org.krobot.Krobot#PROPERTY_CONFIG_FLUSH_WINDOW}).
+     * See {@link LazyConfigFolder}.
+     *
+     * @param maxLoaded The maximum number of files kept in memory
+     */
+    public ConfigAccessor lazy(int maxLoaded)
+    {
+        ConfigRules rules = new ConfigRules(folder.getPath());
+        rules.setStorage(ConfigRules.Storage.LAZY_FOLDER);
+        rules.setMaxLoaded(maxLoaded);
+
+        this.configs.add(rules);
+
+        return new ConfigAccessor(rules);
+    }
+
     public FolderDefaultAccessor withDefaultsIn()
     {
         return new FolderDefaultAccessor(this);
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.config;
+
+/**
+ * A listener of a value of a config, see {@link Config#onChange(String, ConfigListener)}
+ */
+@FunctionalInterface
+public interface ConfigListener
+{
+    /**
+     * Called when the value at the listened path (or one of its children)
+     * was changed, by a set or by a reload of the config
+     *
+     * @param config The config that changed
+     * @param path The listened path
+     */
+    void changed(Config config, String path);
+}
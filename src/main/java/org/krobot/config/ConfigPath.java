@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.config;
+
+/**
+ * The Config Path<br><br>
+ *
+ *
+ * A handle on a value of a config, compiled once by {@link Config#path(String, Class)}
+ * and then read or written without parsing the path again.<br>
+ * Configs supporting it (like {@link FileConfig}) also cache the read value
+ * until the config is changed, so the returned objects must not be modified.
+ *
+ * @param <T> The type of the value
+ */
+public class ConfigPath<T>
+{
+    private final Config config;
+    private final String path;
+    private final Class<T> type;
+
+    /**
+     * @param config The config containing the value
+     * @param path The path of the value in this config (see {@link Config#at(String)})
+     * @param type The type of the value
+     */
+    public ConfigPath(Config config, String path, Class<T> type)
+    {
+        this.config = config;
+        this.path = path;
+        this.type = type;
+    }
+
+    /**
+     * @return The value, or null if there is none
+     */
+    public T get()
+    {
+        return config.at(path, null, type);
+    }
+
+    /**
+     * @param def The default value
+     *
+     * @return The value, or the default one if there is none
+     */
+    public T get(T def)
+    {
+        T value = get();
+        return value == null ? def : value;
+    }
+
+    /**
+     * @param value The new value
+     */
+    public void set(T value)
+    {
+        config.set(path, value);
+    }
+
+    /**
+     * @return The config containing the value
+     */
+    public Config getConfig()
+    {
+        return config;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public Class<T> getType()
+    {
+        return type;
+    }
+}
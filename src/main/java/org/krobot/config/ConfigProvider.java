@@ -18,8 +18,8 @@
  */
 package org.krobot.config;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jetbrains.annotations.Nullable;
 
 public class ConfigProvider
@@ -28,7 +28,7 @@ public class ConfigProvider
 
     public ConfigProvider()
     {
-        this.configs = new HashMap<>();
+        this.configs = new ConcurrentHashMap<>();
     }
 
     public void register(String name, Config config)
@@ -58,6 +58,25 @@ public class ConfigProvider
         }
     }
 
+    /**
+     * Append a value to an array of a config
+     *
+     * @param path The path of the array, starting by the name of its config
+     * @param value The value to append
+     *
+     * @see Config#push(String, Object)
+     */
+    public void push(String path, Object value)
+    {
+        int index = path.indexOf(".");
+        Config config = get(path.substring(0, index));
+
+        if (config != null)
+        {
+            config.push(path.substring(index + 1), value);
+        }
+    }
+
     /**
      * Finds a value with the given path.<br><br>
      *
@@ -166,6 +185,97 @@ public class ConfigProvider
         return config == null ? null : config.at(path.substring(index + 1), def, type);
     }
 
+    /**
+     * Compile a path to a value of one of the configs (see {@link Config#path(String, Class)}),
+     * bridges are resolved once here instead of on each access
+     *
+     * @param path The path of the value, starting by the name of its config (example config.object.key)
+     * @param type The type of the value
+     *
+     * @param <T> The type of the value
+     *
+     * @return The compiled path
+     *
+     * @throws IllegalArgumentException If there is no config with the given name
+     */
+    public <T> ConfigPath<T> path(String path, Class<T> type)
+    {
+        int index = path.indexOf(".");
+
+        if (index == -1)
+        {
+            throw new IllegalArgumentException("Path '" + path + "' doesn't start by a config name");
+        }
+
+        Config config = get(path.substring(0, index));
+
+        if (config == null)
+        {
+            throw new IllegalArgumentException("Unknown config '" + path.substring(0, index) + "' (in path '" + path + "')");
+        }
+
+        return config.path(path.substring(index + 1), type);
+    }
+
+    /**
+     * Listen to the changes of a value of one of the configs (see {@link Config#onChange(String, ConfigListener)})
+     *
+     * @param path The path of the value, starting by the name of its config (example config.object.key)
+     * @param listener The listener to call when the value changes
+     *
+     * @throws IllegalArgumentException If there is no config with the given name
+     */
+    public void onChange(String path, ConfigListener listener)
+    {
+        int index = path.indexOf(".");
+
+        if (index == -1)
+        {
+            throw new IllegalArgumentException("Path '" + path + "' doesn't start by a config name");
+        }
+
+        Config config = get(path.substring(0, index));
+
+        if (config == null)
+        {
+            throw new IllegalArgumentException("Unknown config '" + path.substring(0, index) + "' (in path '" + path + "')");
+        }
+
+        config.onChange(path.substring(index + 1), listener);
+    }
+
+    /**
+     * Implement a config interface, whose methods are annotated with
+     * {@link ConfigValue}. Its values are read once, and read again only
+     * when one of them changes, so calling its methods is as fast as
+     * reading a field.<br><br>
+     *
+     * <b>Example :</b>
+     *
+     * <pre>
+     * public interface BotConfig
+     * {
+     *     &#64;ConfigValue("bot.owner")
+     *     String owner();
+     *
+     *     &#64;ConfigValue(value = "bot.timeout", def = "30")
+     *     int timeout();
+     * }
+     * </pre>
+     *
+     * @param type The config interface
+     *
+     * @param <T> The type of the config interface
+     *
+     * @return An implementation of the interface
+     *
+     * @throws IllegalArgumentException If a method isn't mapped, or is mapped to an unknown config or to a missing value without default
+     */
+    public <T> T bind(Class<T> type)
+    {
+        return new ConfigBinding(this, type).createProxy();
+    }
+
     public boolean has(String name)
     {
         return configs.containsKey(name);
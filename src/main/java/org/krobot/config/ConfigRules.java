@@ -23,6 +23,9 @@ public class ConfigRules
     private String path;
     private String name;
     private DefaultPath def;
+    private long flushWindow = -1;
+    private Storage storage = Storage.FILE;
+    private int maxLoaded;
 
     public ConfigRules(String path)
     {
@@ -54,6 +57,43 @@ public class ConfigRules
         this.def = def;
     }
 
+    /**
+     * @return The write-behind flush window in milliseconds, 0 to save on
+     *         each set, or -1 to use the default one
+     */
+    public long getFlushWindow()
+    {
+        return flushWindow;
+    }
+
+    public void setFlushWindow(long flushWindow)
+    {
+        this.flushWindow = flushWindow;
+    }
+
+    public Storage getStorage()
+    {
+        return storage;
+    }
+
+    public void setStorage(Storage storage)
+    {
+        this.storage = storage;
+    }
+
+    /**
+     * @return The maximum number of files kept in memory, for {@link Storage#LAZY_FOLDER} configs
+     */
+    public int getMaxLoaded()
+    {
+        return maxLoaded;
+    }
+
+    public void setMaxLoaded(int maxLoaded)
+    {
+        this.maxLoaded = maxLoaded;
+    }
+
     public static class DefaultPath
     {
         private String path;
@@ -87,4 +127,22 @@ public class ConfigRules
         CLASSPATH,
         FILESYSTEM
     }
+
+    public enum Storage
+    {
+        /**
+         * The whole file is written on each change (see {@link FileConfig})
+         */
+        FILE,
+
+        /**
+         * Changes are appended to a journal, compacted into the file from time to time (see {@link JournalConfig})
+         */
+        JOURNAL,
+
+        /**
+         * The path is a folder of files read on first access, and kept in memory while used (see {@link LazyConfigFolder})
+         */
+        LAZY_FOLDER
+    }
 }
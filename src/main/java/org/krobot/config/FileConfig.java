@@ -18,72 +18,331 @@
  */
 package org.krobot.config;
 
-import com.google.common.io.Files;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+/**
+ * A config stored in a JSON file<br><br>
+ *
+ *
+ * The tree is never modified once published: writes (serialized between
+ * them) build a new one and swap it, so reads never lock and always see a
+ * consistent snapshot, even while the config is being saved.<br><br>
+ *
+ * The same way, {@link #reload()} swaps the whole tree at once when the
+ * file was edited by something else, and listeners registered using
+ * {@link #onChange(String, ConfigListener)} are called for the values
+ * that differ between the two trees.
+ */
 public class FileConfig implements Config
 {
+    private static final Logger log = LogManager.getLogger("FileConfig");
+
     protected static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
+    private final Object writeLock = new Object();
+    private final Object flushLock = new Object();
+
     private File file;
-    private JsonObject config;
+    private volatile JsonObject config;
+    private long flushWindow;
+    private volatile long version;
+    private volatile long savedVersion;
+    private volatile long checksum;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
 
     public FileConfig(File file) throws IOException
+    {
+        this(file, 0);
+    }
+
+    /**
+     * @param file The file of the config
+     * @param flushWindow If positive, changes are saved in background after
+     *                    this time (in milliseconds), instead of on each set
+     *
+     * @throws IOException If the file can't be read
+     */
+    public FileConfig(File file, long flushWindow) throws IOException
     {
         this.file = file;
-        this.config = new JsonParser().parse(Files.toString(file, Charset.defaultCharset())).getAsJsonObject();
+        this.flushWindow = flushWindow;
+
+        byte[] content = Files.readAllBytes(file.toPath());
+
+        this.config = new JsonParser().parse(new String(content, Charset.defaultCharset())).getAsJsonObject();
+        this.checksum = checksum(content);
+    }
+
+    /**
+     * Create a config whose file doesn't exist yet, it will be on the first save
+     *
+     * @param file The file of the config
+     * @param flushWindow See {@link #FileConfig(File, long)}
+     * @param tree The initial tree
+     */
+    FileConfig(File file, long flushWindow, JsonObject tree)
+    {
+        this.file = file;
+        this.flushWindow = flushWindow;
+        this.config = tree;
     }
 
     @Override
     public <T> T get(String key, T def, Class<T> type)
     {
-        T value = gson.fromJson(config.get(key), type);
+        T value = gson.fromJson(getTree().get(key), type);
         return value == null ? def : value;
     }
 
     @Override
     public void set(String key, Object value)
     {
-        if (key.contains("."))
+        set(key.split("\\."), value);
+    }
+
+    private void set(String[] path, Object value)
+    {
+        JsonObject before;
+        JsonObject after;
+
+        synchronized (writeLock)
         {
-            try
+            JsonElement element = toTree(value);
+
+            if (element == null)
             {
-                String[] split = key.split("\\.");
-                JsonObject object = config;
+                return;
+            }
 
-                for (int i = 0; i < split.length - 1; i++)
-                {
-                    String str = split[i];
+            before = getTree();
 
-                    if (!object.has(str))
-                    {
-                        object.add(str, new JsonObject());
-                    }
+            apply(path, element, false);
+            record(path, element, false);
 
-                    object = object.getAsJsonObject(str);
-                }
+            after = config;
+        }
+
+        changed();
+        fire(before, after);
+    }
+
+    /**
+     * Append a value to an array, without reading the array back
+     *
+     * @param field The path of the array (created if missing)
+     * @param value The value to append
+     */
+    @Override
+    public void push(String field, Object value)
+    {
+        String[] path = field.split("\\.");
+
+        JsonObject before;
+        JsonObject after;
+
+        synchronized (writeLock)
+        {
+            JsonElement element = toTree(value);
 
-                object.add(split[split.length - 1], gson.toJsonTree(value));
+            if (element == null)
+            {
+                return;
             }
-            catch (JsonParseException ignored)
+
+            before = getTree();
+
+            apply(path, element, true);
+            record(path, element, true);
+
+            after = config;
+        }
+
+        changed();
+        fire(before, after);
+    }
+
+    @Override
+    public <T> T[] append(String field, Class<T[]> classOfArray, T toAppend)
+    {
+        push(field, toAppend);
+        return at(field, classOfArray);
+    }
+
+    /**
+     * @return The JSON tree of the given value, or null if it can't be serialized
+     */
+    protected static JsonElement toTree(Object value)
+    {
+        try
+        {
+            return gson.toJsonTree(value);
+        }
+        catch (JsonParseException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Replace the tree by a copy having the new value. Only the objects on
+     * the path are copied, the others are shared with the previous tree
+     * (trees are never modified once published). Must be called while
+     * holding the write lock.
+     *
+     * @param split The path of the value
+     * @param element The new value
+     * @param push If the value must be appended to the array at the path, instead of replacing it
+     */
+    protected void apply(String[] split, JsonElement element, boolean push)
+    {
+        if (push)
+        {
+            pushAll(split, Collections.singletonList(element));
+        }
+        else
+        {
+            update(split, current -> element);
+        }
+    }
+
+    /**
+     * Append several values to the array at the given path at once, so the
+     * array is only copied once. Must be called while holding the write lock.
+     *
+     * @param split The path of the array (created if missing)
+     * @param elements The values to append
+     */
+    protected void pushAll(String[] split, List<JsonElement> elements)
+    {
+        update(split, current -> {
+            JsonArray array = new JsonArray();
+
+            if (current != null && !current.isJsonNull())
             {
+                if (!current.isJsonArray())
+                {
+                    throw new IllegalArgumentException("Field '" + split[split.length - 1] + "' isn't an array");
+                }
+
+                array.addAll(current.getAsJsonArray());
             }
+
+            elements.forEach(array::add);
+            return array;
+        });
+    }
+
+    private void update(String[] split, UnaryOperator<JsonElement> change)
+    {
+        JsonObject root = copy(config);
+        JsonObject object = root;
+
+        for (int i = 0; i < split.length - 1; i++)
+        {
+            JsonElement child = object.get(split[i]);
+            JsonObject copy = child == null ? new JsonObject() : copy(child.getAsJsonObject());
+
+            object.add(split[i], copy);
+            object = copy;
+        }
+
+        String last = split[split.length - 1];
+        object.add(last, change.apply(object.get(last)));
+
+        this.config = root;
+        this.version++;
+    }
+
+    /**
+     * Mark the config as changed, for a change that isn't applied to the
+     * tree yet, so the compiled paths don't keep their value. Must be called
+     * while holding the write lock.
+     */
+    protected void touch()
+    {
+        this.version++;
+    }
+
+    /**
+     * Called, while holding the write lock, after a change was applied to the tree
+     *
+     * @param path The path of the changed value
+     * @param element The new value (or the appended one)
+     * @param push If the value was appended to an array
+     */
+    protected void record(String[] path, JsonElement element, boolean push)
+    {
+    }
+
+    /**
+     * Called after each change, out of the write lock
+     */
+    protected void changed()
+    {
+        if (flushWindow > 0)
+        {
+            ConfigFlusher.schedule(this, flushWindow);
         }
         else
         {
-            config.add(key, gson.toJsonTree(value));
+            flush();
         }
+    }
 
-        save();
+    protected Object getWriteLock()
+    {
+        return writeLock;
+    }
+
+    /**
+     * @return The current tree, must not be modified. Every read goes through it.
+     */
+    protected JsonObject getTree()
+    {
+        return config;
+    }
+
+    private static JsonObject copy(JsonObject object)
+    {
+        JsonObject copy = new JsonObject();
+
+        for (Map.Entry<String, JsonElement> entry : object.entrySet())
+        {
+            copy.add(entry.getKey(), entry.getValue());
+        }
+
+        return copy;
     }
 
     @Override
@@ -91,42 +350,242 @@ public class FileConfig implements Config
     {
         try
         {
-            String[] split = path.split("\\.");
-            JsonElement el = config;
+            JsonElement el = find(path.split("\\."));
+            return el == null ? null : gson.fromJson(el, type);
+        }
+        catch (JsonParseException e)
+        {
+            return def;
+        }
+    }
+
+    @Override
+    public <T> ConfigPath<T> path(String path, Class<T> type)
+    {
+        return new CompiledPath<>(this, path, type);
+    }
+
+    private JsonElement find(String[] split)
+    {
+        // Trees are immutable, reading the current one is enough to get a consistent snapshot
+        JsonElement el = getTree();
+
+        for (int i = 0; i < split.length - 1; i++)
+        {
+            el = el.getAsJsonObject().get(split[i]);
 
-            for (int i = 0; i < split.length - 1; i++)
+            if (el == null)
             {
-                el = el.getAsJsonObject().get(split[i]);
+                return null;
+            }
 
-                if (el == null)
-                {
-                    return null;
-                }
+            if (!el.isJsonObject())
+            {
+                throw new IllegalArgumentException("Field '" + split[i] + "' isn't an object");
+            }
+        }
 
-                if (!el.isJsonObject())
+        return el.getAsJsonObject().get(split[split.length - 1]);
+    }
+
+    /**
+     * Save the config now. The JSON is streamed to a temporary file, which
+     * then atomically replaces the config file. Only other saves wait for
+     * it, reads and writes use the current tree meanwhile.
+     */
+    public void flush()
+    {
+        synchronized (flushLock)
+        {
+            // Read before the tree, so a concurrent write can only make it look unsaved
+            long version = this.version;
+
+            write(getTree());
+            savedVersion = version;
+        }
+    }
+
+    /**
+     * Reload the config from its file, if it was modified by something
+     * else than this config. The new tree replaces the current one at
+     * once, and the listeners of the values that changed are called.<br><br>
+     *
+     * Changes not saved yet (see {@link #getFlushWindow()}) are lost.
+     *
+     * @return If the file was modified, and so the config reloaded
+     *
+     * @throws IOException If the file can't be read or doesn't contain a JSON object
+     */
+    public boolean reload() throws IOException
+    {
+        JsonObject before;
+        JsonObject after;
+
+        // Holding the flush lock, so a save of the previous tree can't overwrite the file after
+        synchronized (flushLock)
+        {
+            byte[] content = Files.readAllBytes(file.toPath());
+            long checksum = checksum(content);
+
+            if (checksum == this.checksum)
+            {
+                return false;
+            }
+
+            try
+            {
+                after = new JsonParser().parse(new String(content, Charset.defaultCharset())).getAsJsonObject();
+            }
+            catch (JsonParseException | IllegalStateException e)
+            {
+                throw new IOException("File " + file + " doesn't contain a valid JSON object", e);
+            }
+
+            synchronized (writeLock)
+            {
+                if (savedVersion != version)
                 {
-                    throw new IllegalArgumentException("Field '" + split[i] + "' isn't an object");
+                    log.warn("Config {} was modified while having unsaved changes, they are lost", file);
                 }
+
+                before = config;
+
+                this.config = after;
+                this.version++;
+                this.savedVersion = version;
+                this.checksum = checksum;
             }
+        }
 
-            return gson.fromJson(el.getAsJsonObject().get(split[split.length - 1]), type);
+        fire(before, after);
+        return true;
+    }
+
+    /**
+     * @return If the config was changed since it was loaded or last saved
+     */
+    public boolean hasUnsavedChanges()
+    {
+        return savedVersion != version;
+    }
+
+    @Override
+    public void onChange(String path, ConfigListener listener)
+    {
+        listeners.add(new Listener(path, listener));
+    }
+
+    /**
+     * Call the listeners of a value and of its parents, for a change that
+     * isn't applied to the tree yet (and so can't be compared)
+     *
+     * @param split The path of the changed value
+     */
+    protected void fire(String[] split)
+    {
+        for (Listener listener : listeners)
+        {
+            if (listener.split.length > split.length || !Arrays.equals(listener.split, Arrays.copyOf(split, listener.split.length)))
+            {
+                continue;
+            }
+
+            call(listener);
         }
-        catch (JsonParseException e)
+    }
+
+    private void fire(JsonObject before, JsonObject after)
+    {
+        for (Listener listener : listeners)
         {
-            return def;
+            // Unchanged objects are shared between trees, so this is mostly an identity check
+            if (Objects.equals(lookup(before, listener.split), lookup(after, listener.split)))
+            {
+                continue;
+            }
+
+            call(listener);
+        }
+    }
+
+    private void call(Listener listener)
+    {
+        try
+        {
+            listener.listener.changed(this, listener.path);
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Listener of '" + listener.path + "' in config " + file + " threw an exception", e);
+        }
+    }
+
+    private static JsonElement lookup(JsonObject root, String[] split)
+    {
+        JsonElement el = root;
+
+        for (String field : split)
+        {
+            if (!el.isJsonObject())
+            {
+                return null;
+            }
+
+            el = el.getAsJsonObject().get(field);
+
+            if (el == null)
+            {
+                return null;
+            }
         }
+
+        return el;
+    }
+
+    private static long checksum(byte[] content)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+
+        return crc.getValue();
     }
 
-    private void save()
+    /**
+     * Atomically replace the config file by the given tree
+     *
+     * @param snapshot The tree to write
+     */
+    protected void write(JsonObject snapshot)
     {
-        if (!file.exists())
+        File target = file.getAbsoluteFile();
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+
+        if (!target.getParentFile().exists())
         {
-            file.getParentFile().mkdirs();
+            target.getParentFile().mkdirs();
         }
 
         try
         {
-            Files.write(gson.toJson(config), file, Charset.defaultCharset());
+            CRC32 crc = new CRC32();
+
+            try (JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(new CheckedOutputStream(new FileOutputStream(temp), crc), Charset.defaultCharset()))))
+            {
+                writer.setIndent("  ");
+                gson.toJson(snapshot, writer);
+            }
+
+            try
+            {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            // Remembered so the config isn't reloaded because of its own save
+            checksum = crc.getValue();
         }
         catch (IOException e)
         {
@@ -134,8 +593,95 @@ public class FileConfig implements Config
         }
     }
 
+    /**
+     * @return The time after which changes are saved in background, or 0 if they are saved on each set
+     */
+    public long getFlushWindow()
+    {
+        return flushWindow;
+    }
+
     public File getFile()
     {
         return file;
     }
+
+    /**
+     * A path of a file config: the path is split once, and the read value
+     * is kept until the config is changed
+     */
+    private static final class CompiledPath<T> extends ConfigPath<T>
+    {
+        private final FileConfig owner;
+        private final String[] split;
+
+        private volatile Cached<T> cache;
+
+        CompiledPath(FileConfig owner, String path, Class<T> type)
+        {
+            super(owner, path, type);
+
+            this.owner = owner;
+            this.split = path.split("\\.");
+        }
+
+        @Override
+        public T get()
+        {
+            Cached<T> cached = cache;
+            long version = owner.version;
+
+            if (cached != null && cached.version == version)
+            {
+                return cached.value;
+            }
+
+            T value;
+
+            try
+            {
+                JsonElement el = owner.find(split);
+                value = el == null ? null : gson.fromJson(el, getType());
+            }
+            catch (JsonParseException e)
+            {
+                value = null;
+            }
+
+            cache = new Cached<>(version, value);
+            return value;
+        }
+
+        @Override
+        public void set(T value)
+        {
+            owner.set(split, value);
+        }
+    }
+
+    private static final class Listener
+    {
+        private final String path;
+        private final String[] split;
+        private final ConfigListener listener;
+
+        Listener(String path, ConfigListener listener)
+        {
+            this.path = path;
+            this.split = path.split("\\.");
+            this.listener = listener;
+        }
+    }
+
+    private static final class Cached<T>
+    {
+        private final long version;
+        private final T value;
+
+        Cached(long version, T value)
+        {
+            this.version = version;
+            this.value = value;
+        }
+    }
 }
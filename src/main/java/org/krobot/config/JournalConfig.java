@@ -0,0 +1,506 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.config;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Journal Config<br><br>
+ *
+ *
+ * A {@link FileConfig} for append-heavy data: instead of rewriting the whole
+ * file, each change is appended as a record to a journal next to it
+ * (<i>name.json.journal</i>), so sets and pushes cost O(1) I/O.<br>
+ * When the journal gets bigger than the snapshot (the JSON file), or at
+ * shutdown (see {@link ConfigFlusher#flushAll()}), the tree is compacted
+ * into the snapshot and the journal restarts empty.<br><br>
+ *
+ * Pushed values are kept aside and appended to their array on the next
+ * read, copying the array once for all of them, so a series of pushes
+ * doesn't copy the array each time.<br><br>
+ *
+ * At startup the snapshot is read and the journal replayed on it. A record
+ * torn by a crash (incomplete, or with a wrong checksum) ends the journal,
+ * which is truncated there. The journal starts by the checksum of the
+ * snapshot it applies to, so a journal already compacted into the
+ * snapshot (crash between the two steps) is never replayed twice.<br><br>
+ *
+ * <b>Record format :</b> length (int), CRC32 of the payload (int), payload
+ * (UTF-8 JSON array: <code>["set"|"push", "path", value]</code>, or
+ * <code>["base", checksum]</code> for the first record).
+ */
+public class JournalConfig extends FileConfig
+{
+    private static final Logger log = LogManager.getLogger("JournalConfig");
+
+    private static final String SET = "set";
+    private static final String PUSH = "push";
+    private static final String BASE = "base";
+
+    /**
+     * Minimum size of the journal before compacting, in bytes
+     */
+    private static final long MIN_COMPACTION_SIZE = 64 * 1024;
+
+    private final File journalFile;
+    private FileChannel journal;
+
+    private long journalSize;
+    private long snapshotSize;
+    private volatile boolean compacting;
+
+    // Values pushed but not appended to their array yet, by path, guarded by the write lock
+    private final Map<String, List<JsonElement>> pending = new LinkedHashMap<>();
+    private volatile boolean dirty;
+
+    public JournalConfig(File file) throws IOException
+    {
+        super(file, 0);
+
+        this.journalFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".journal");
+        this.snapshotSize = file.length();
+
+        byte[] snapshot = Files.readAllBytes(file.toPath());
+
+        synchronized (getWriteLock())
+        {
+            if (journalFile.exists())
+            {
+                replay(checksum(snapshot));
+            }
+            else
+            {
+                restart(checksum(snapshot));
+            }
+        }
+
+        ConfigFlusher.track(this);
+    }
+
+    /**
+     * Append a value to an array, the array is only copied on the next read
+     *
+     * @param field The path of the array (created if missing)
+     * @param value The value to append
+     */
+    @Override
+    public void push(String field, Object value)
+    {
+        String[] path = field.split("\\.");
+
+        synchronized (getWriteLock())
+        {
+            JsonElement element = toTree(value);
+
+            if (element == null)
+            {
+                return;
+            }
+
+            defer(field, path, element);
+            record(path, element, true);
+        }
+
+        changed();
+        fire(path);
+    }
+
+    @Override
+    protected void apply(String[] split, JsonElement element, boolean push)
+    {
+        // Pushes made before must be applied first
+        materialize();
+        super.apply(split, element, push);
+    }
+
+    @Override
+    protected JsonObject getTree()
+    {
+        if (dirty)
+        {
+            synchronized (getWriteLock())
+            {
+                materialize();
+            }
+        }
+
+        return super.getTree();
+    }
+
+    /**
+     * Keep a pushed value aside, after checking it can be pushed at the
+     * given path. Must be called while holding the write lock.
+     */
+    private void defer(String field, String[] path, JsonElement element)
+    {
+        List<JsonElement> values = pending.get(field);
+
+        if (values == null)
+        {
+            check(field, path);
+
+            values = new ArrayList<>();
+            pending.put(field, values);
+        }
+
+        values.add(element);
+
+        dirty = true;
+        touch();
+    }
+
+    /**
+     * Check the value at a path is an array (or missing), without applying
+     * the pending pushes
+     */
+    private void check(String field, String[] path)
+    {
+        for (String other : pending.keySet())
+        {
+            if (field.startsWith(other + "."))
+            {
+                throw new IllegalArgumentException("Field '" + other + "' isn't an object");
+            }
+
+            if (other.startsWith(field + "."))
+            {
+                throw new IllegalArgumentException("Field '" + path[path.length - 1] + "' isn't an array");
+            }
+        }
+
+        JsonElement el = super.getTree();
+
+        for (int i = 0; i < path.length; i++)
+        {
+            el = el.getAsJsonObject().get(path[i]);
+
+            if (el == null || el.isJsonNull())
+            {
+                return;
+            }
+
+            if (i < path.length - 1 && !el.isJsonObject())
+            {
+                throw new IllegalArgumentException("Field '" + path[i] + "' isn't an object");
+            }
+        }
+
+        if (!el.isJsonArray())
+        {
+            throw new IllegalArgumentException("Field '" + path[path.length - 1] + "' isn't an array");
+        }
+    }
+
+    /**
+     * Append the pending pushes to their array. Must be called while holding the write lock.
+     */
+    private void materialize()
+    {
+        if (!dirty)
+        {
+            return;
+        }
+
+        pending.forEach((field, values) -> pushAll(field.split("\\."), values));
+        pending.clear();
+
+        dirty = false;
+    }
+
+    @Override
+    protected void record(String[] path, JsonElement element, boolean push)
+    {
+        JsonArray record = new JsonArray();
+        record.add(push ? PUSH : SET);
+        record.add(String.join(".", path));
+        record.add(element);
+
+        try
+        {
+            append(record);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Can't write in the journal of config " + getFile(), e);
+        }
+    }
+
+    @Override
+    protected void changed()
+    {
+        if (!compacting && journalSize > Math.max(MIN_COMPACTION_SIZE, snapshotSize))
+        {
+            compacting = true;
+            ConfigFlusher.schedule(this, 0);
+        }
+    }
+
+    /**
+     * Compact the journal into the snapshot. Writes wait for the end of the
+     * compaction, reads don't.
+     */
+    @Override
+    public void flush()
+    {
+        synchronized (getWriteLock())
+        {
+            try
+            {
+                if (journalSize > 0)
+                {
+                    write(getTree());
+                    restart(checksum(Files.readAllBytes(getFile().toPath())));
+                }
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException("Can't compact the journal of config " + getFile(), e);
+            }
+            finally
+            {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Journaled configs are only written by the bot: an edited snapshot
+     * isn't reloaded, as the journal wouldn't apply to it anymore. It will
+     * be overwritten by the next compaction.
+     *
+     * @return Always false
+     */
+    @Override
+    public boolean reload()
+    {
+        log.warn("Config {} is journaled, it can't be reloaded (edits of its file will be overwritten)", getFile());
+        return false;
+    }
+
+    /**
+     * Compact the journal and close it, called at shutdown by
+     * {@link ConfigFlusher#flushAll()}. The config can't be changed after.
+     */
+    public void close()
+    {
+        synchronized (getWriteLock())
+        {
+            if (!journal.isOpen())
+            {
+                return;
+            }
+
+            flush();
+
+            try
+            {
+                journal.force(true);
+                journal.close();
+            }
+            catch (IOException e)
+            {
+                log.error("Can't close the journal of config " + getFile(), e);
+            }
+        }
+    }
+
+    private void replay(String base) throws IOException
+    {
+        byte[] bytes = Files.readAllBytes(journalFile.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        int records = 0;
+        boolean applies = true;
+
+        while (buffer.remaining() > 0)
+        {
+            int start = buffer.position();
+            JsonArray record = read(buffer);
+
+            if (record == null)
+            {
+                log.warn("Journal of config {} has a torn record at {}, truncating it ({} bytes lost)", getFile(), start, bytes.length - start);
+                buffer.position(start);
+
+                break;
+            }
+
+            String op = record.get(0).getAsString();
+
+            if (op.equals(BASE))
+            {
+                applies = record.get(1).getAsString().equals(base);
+
+                if (!applies)
+                {
+                    log.warn("Journal of config {} doesn't apply to its current snapshot (already compacted, or snapshot edited), ignoring it", getFile());
+                }
+
+                continue;
+            }
+
+            if (applies)
+            {
+                String field = record.get(1).getAsString();
+
+                if (op.equals(PUSH))
+                {
+                    defer(field, field.split("\\."), record.get(2));
+                }
+                else
+                {
+                    apply(field.split("\\."), record.get(2), false);
+                }
+
+                records++;
+            }
+        }
+
+        if (!applies || buffer.position() == 0)
+        {
+            restart(base);
+            return;
+        }
+
+        this.journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE);
+        journal.truncate(buffer.position());
+        journal.position(buffer.position());
+
+        this.journalSize = buffer.position();
+
+        if (records > 0)
+        {
+            log.info("Replayed {} journal records of config {}", records, getFile());
+        }
+    }
+
+    private JsonArray read(ByteBuffer buffer)
+    {
+        if (buffer.remaining() < 8)
+        {
+            return null;
+        }
+
+        int length = buffer.getInt();
+        int crc = buffer.getInt();
+
+        if (length < 0 || length > buffer.remaining())
+        {
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+
+        if ((int) checksum.getValue() != crc)
+        {
+            return null;
+        }
+
+        try
+        {
+            return new JsonParser().parse(new String(payload, StandardCharsets.UTF_8)).getAsJsonArray();
+        }
+        catch (JsonParseException | IllegalStateException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Start a new empty journal, applying to the given snapshot
+     */
+    private void restart(String base) throws IOException
+    {
+        if (journal != null)
+        {
+            journal.close();
+        }
+
+        this.journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.journalSize = 0;
+        this.snapshotSize = getFile().length();
+
+        JsonArray record = new JsonArray();
+        record.add(BASE);
+        record.add(new JsonPrimitive(base));
+
+        append(record);
+        journal.force(false);
+
+        // Only the changes count in the journal size
+        this.journalSize = 0;
+    }
+
+    private void append(JsonArray record) throws IOException
+    {
+        byte[] payload = record.toString().getBytes(StandardCharsets.UTF_8);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+
+        ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) checksum.getValue());
+        buffer.put(payload);
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+        {
+            journal.write(buffer);
+        }
+
+        journalSize += buffer.limit();
+    }
+
+    private static String checksum(byte[] snapshot)
+    {
+        CRC32 checksum = new CRC32();
+        checksum.update(snapshot);
+
+        return Long.toHexString(checksum.getValue()) + "-" + snapshot.length;
+    }
+
+    public File getJournalFile()
+    {
+        return journalFile;
+    }
+}
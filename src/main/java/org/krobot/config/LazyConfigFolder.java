@@ -0,0 +1,418 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.config;
+
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A folder of JSON files used as one config, whose paths start by the name
+ * of a file (example 1234.prefix is the prefix in 1234.json)<br><br>
+ *
+ *
+ * Files are read when first used, and only the most recently used ones
+ * are kept in memory. When the limit is exceeded, the least recently used
+ * file is saved if it was changed, then dropped. Changes are otherwise
+ * only saved at shutdown, unless a flush window was given (see
+ * {@link ConfigAccessor#writeBehind(long)}) or a default one is set
+ * ({@link org.krobot.Krobot#PROPERTY_CONFIG_FLUSH_WINDOW}).<br><br>
+ *
+ * Configs returned by {@link #get(String)} may be dropped at any time, so
+ * they must not be kept.
+ */
+public class LazyConfigFolder implements Config
+{
+    private static final Logger log = LogManager.getLogger("LazyConfigFolder");
+
+    private final File folder;
+    private final int maxLoaded;
+    private final long flushWindow;
+
+    // Every file in memory, including the ones being saved after being dropped
+    private final Map<String, Entry> entries;
+
+    // The files kept in memory, by access order (guarded by itself)
+    private final LinkedHashMap<String, Entry> recent;
+
+    private final List<Listener> listeners;
+
+    /**
+     * @param folder The folder containing the files
+     * @param maxLoaded The maximum number of files kept in memory
+     * @param flushWindow The write-behind flush window of the files (see {@link FileConfig#FileConfig(File, long)}),
+     *                    or -1 to only save them when dropped or at shutdown
+     */
+    public LazyConfigFolder(File folder, int maxLoaded, long flushWindow)
+    {
+        if (maxLoaded < 1)
+        {
+            throw new IllegalArgumentException("A lazy config folder must be able to keep at least one file loaded");
+        }
+
+        this.folder = folder;
+        this.maxLoaded = maxLoaded;
+        this.flushWindow = flushWindow;
+
+        this.entries = new ConcurrentHashMap<>();
+        this.recent = new LinkedHashMap<>(16, 0.75f, true);
+        this.listeners = new CopyOnWriteArrayList<>();
+
+        ConfigFlusher.track(this);
+    }
+
+    /**
+     * @param name The name of the file, without extension
+     *
+     * @return The config of the file, empty if it doesn't exist yet (it is created on the first save)
+     */
+    public Config get(String name)
+    {
+        Entry entry = acquire(name);
+        release(entry);
+
+        return entry;
+    }
+
+    @Override
+    public <T> T get(String key, T def, Class<T> type)
+    {
+        int index = split(key);
+        Entry entry = acquire(key.substring(0, index));
+
+        try
+        {
+            return entry.get(key.substring(index + 1), def, type);
+        }
+        finally
+        {
+            release(entry);
+        }
+    }
+
+    @Override
+    public void set(String key, Object value)
+    {
+        int index = split(key);
+        Entry entry = acquire(key.substring(0, index));
+
+        try
+        {
+            entry.set(key.substring(index + 1), value);
+        }
+        finally
+        {
+            release(entry);
+        }
+    }
+
+    @Override
+    public void push(String field, Object value)
+    {
+        int index = split(field);
+        Entry entry = acquire(field.substring(0, index));
+
+        try
+        {
+            entry.push(field.substring(index + 1), value);
+        }
+        finally
+        {
+            release(entry);
+        }
+    }
+
+    @Override
+    public <T> T at(String path, T def, Class<T> type)
+    {
+        int index = split(path);
+        Entry entry = acquire(path.substring(0, index));
+
+        try
+        {
+            return entry.at(path.substring(index + 1), def, type);
+        }
+        finally
+        {
+            release(entry);
+        }
+    }
+
+    /**
+     * Not compiled in the file config, as the file may be dropped: the
+     * returned path goes through the folder on each access
+     */
+    @Override
+    public <T> ConfigPath<T> path(String path, Class<T> type)
+    {
+        split(path);
+        return new ConfigPath<>(this, path, type);
+    }
+
+    @Override
+    public void onChange(String path, ConfigListener listener)
+    {
+        int index = split(path);
+        Listener folderListener = new Listener(path.substring(0, index), path.substring(index + 1), (config, p) -> listener.changed(this, path));
+
+        // In the lock of the file entry, so it is either attached here or when the file is read
+        entries.compute(folderListener.file, (name, entry) -> {
+            listeners.add(folderListener);
+
+            if (entry != null)
+            {
+                entry.onChange(folderListener.path, folderListener.listener);
+            }
+
+            return entry;
+        });
+    }
+
+    /**
+     * Save every changed file kept in memory
+     */
+    public void flush()
+    {
+        entries.values().forEach(this::save);
+    }
+
+    /**
+     * Get a file, loading it if needed. It can't be dropped until released.
+     */
+    private Entry acquire(String name)
+    {
+        while (true)
+        {
+            // Files are read out of any global lock, so other files can be used meanwhile
+            Entry entry = entries.computeIfAbsent(name, this::read);
+            Entry eldest = null;
+
+            synchronized (recent)
+            {
+                if (entry.dropped)
+                {
+                    // Dropped since it was looked up, reading it again
+                    continue;
+                }
+
+                entry.users++;
+
+                if (recent.get(name) == null)
+                {
+                    entry.resident = true;
+                    recent.put(name, entry);
+
+                    if (recent.size() > maxLoaded)
+                    {
+                        Iterator<Entry> iterator = recent.values().iterator();
+
+                        eldest = iterator.next();
+                        eldest.resident = false;
+
+                        iterator.remove();
+                    }
+                }
+            }
+
+            if (eldest != null)
+            {
+                drop(eldest);
+            }
+
+            return entry;
+        }
+    }
+
+    private void release(Entry entry)
+    {
+        synchronized (recent)
+        {
+            if (--entry.users > 0 || entry.resident)
+            {
+                return;
+            }
+        }
+
+        // Was dropped while used
+        drop(entry);
+    }
+
+    private void drop(Entry entry)
+    {
+        // Saved while holding the lock of its entry, so it can't be read again before
+        entries.computeIfPresent(entry.name, (name, current) -> {
+            synchronized (recent)
+            {
+                if (current != entry || entry.resident || entry.users > 0)
+                {
+                    // Used again meanwhile, or still used (dropped on release)
+                    return current;
+                }
+
+                entry.dropped = true;
+            }
+
+            save(entry);
+            return null;
+        });
+    }
+
+    private Entry read(String name)
+    {
+        Entry entry = open(name);
+
+        for (Listener listener : listeners)
+        {
+            if (listener.file.equals(name))
+            {
+                entry.onChange(listener.path, listener.listener);
+            }
+        }
+
+        return entry;
+    }
+
+    private Entry open(String name)
+    {
+        if (name.isEmpty() || name.startsWith(".") || name.contains("/") || name.contains("\\"))
+        {
+            throw new IllegalArgumentException("Invalid file name '" + name + "' in config folder " + folder);
+        }
+
+        File file = new File(folder, name + ".json");
+
+        if (!file.exists())
+        {
+            return new Entry(name, file, new JsonObject());
+        }
+
+        try
+        {
+            return new Entry(name, file);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Can't read config " + file, e);
+        }
+    }
+
+    private void save(Entry entry)
+    {
+        try
+        {
+            if (entry.hasUnsavedChanges())
+            {
+                entry.flush();
+            }
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Can't save config " + entry.getFile(), e);
+        }
+    }
+
+    private static int split(String path)
+    {
+        int index = path.indexOf('.');
+
+        if (index < 1)
+        {
+            throw new IllegalArgumentException("Path '" + path + "' doesn't start by a file name");
+        }
+
+        return index;
+    }
+
+    /**
+     * @return The number of files currently in memory
+     */
+    public int getLoadedCount()
+    {
+        synchronized (recent)
+        {
+            return recent.size();
+        }
+    }
+
+    public int getMaxLoaded()
+    {
+        return maxLoaded;
+    }
+
+    public File getFolder()
+    {
+        return folder;
+    }
+
+    private final class Entry extends FileConfig
+    {
+        private final String name;
+        private volatile boolean resident;
+        private volatile boolean dropped;
+
+        // Guarded by the recent files lock
+        private int users;
+
+        Entry(String name, File file) throws IOException
+        {
+            super(file, flushWindow);
+            this.name = name;
+        }
+
+        Entry(String name, File file, JsonObject tree)
+        {
+            super(file, flushWindow, tree);
+            this.name = name;
+        }
+
+        @Override
+        protected void changed()
+        {
+            // Saved when dropped, unless changed after being dropped or having a flush window
+            if (!resident || flushWindow >= 0)
+            {
+                super.changed();
+            }
+        }
+    }
+
+    private static final class Listener
+    {
+        private final String file;
+        private final String path;
+        private final ConfigListener listener;
+
+        Listener(String file, String path, ConfigListener listener)
+        {
+            this.file = file;
+            this.path = path;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.module;
+
+import java.util.Arrays;
+import net.dv8tion.jda.api.entities.Category;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.PrivateChannel;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.krobot.MessageContext;
+
+/**
+ * The Scope<br><br>
+ *
+ *
+ * A declarative {@link Filter}, matching messages from some guilds, channels,
+ * categories, members having some roles, or private messages.<br>
+ * Unlike lambda filters, the runtime can index scopes by their IDs, so it
+ * finds the ones matching a message with a few hash lookups instead of
+ * calling each of them.
+ */
+public final class Scope implements Filter
+{
+    private final Kind kind;
+    private final long[] ids;
+
+    private Scope(Kind kind, long[] ids)
+    {
+        this.kind = kind;
+        this.ids = ids.clone();
+
+        Arrays.sort(this.ids);
+    }
+
+    /**
+     * @param ids IDs of guilds
+     *
+     * @return A scope matching the messages sent in one of these guilds
+     */
+    public static Scope guild(long... ids)
+    {
+        return new Scope(Kind.GUILD, ids);
+    }
+
+    /**
+     * @param ids IDs of channels
+     *
+     * @return A scope matching the messages sent in one of these channels
+     */
+    public static Scope channel(long... ids)
+    {
+        return new Scope(Kind.CHANNEL, ids);
+    }
+
+    /**
+     * @param ids IDs of channel categories
+     *
+     * @return A scope matching the messages sent in a channel of one of these categories
+     */
+    public static Scope category(long... ids)
+    {
+        return new Scope(Kind.CATEGORY, ids);
+    }
+
+    /**
+     * @param ids IDs of roles
+     *
+     * @return A scope matching the messages sent by a member having one of these roles
+     */
+    public static Scope role(long... ids)
+    {
+        return new Scope(Kind.ROLE, ids);
+    }
+
+    /**
+     * @return A scope matching the private messages
+     */
+    public static Scope privateMessages()
+    {
+        return new Scope(Kind.PRIVATE, new long[0]);
+    }
+
+    @Override
+    public boolean filter(MessageContext context)
+    {
+        switch (kind)
+        {
+            case GUILD:
+                Guild guild = context.getGuild();
+                return guild != null && contains(guild.getIdLong());
+            case CHANNEL:
+                return contains(context.getChannel().getIdLong());
+            case CATEGORY:
+                long category = categoryOf(context.getChannel());
+                return category != 0 && contains(category);
+            case ROLE:
+                Member member = context.getMessage().getMember();
+
+                if (member != null)
+                {
+                    for (Role role : member.getRoles())
+                    {
+                        if (contains(role.getIdLong()))
+                        {
+                            return true;
+                        }
+                    }
+                }
+
+                return false;
+            case PRIVATE:
+                return context.getChannel() instanceof PrivateChannel;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param channel A channel
+     *
+     * @return The ID of its category, or 0 if it has none
+     */
+    public static long categoryOf(MessageChannel channel)
+    {
+        if (!(channel instanceof TextChannel))
+        {
+            return 0;
+        }
+
+        Category parent = ((TextChannel) channel).getParent();
+        return parent == null ? 0 : parent.getIdLong();
+    }
+
+    private boolean contains(long id)
+    {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    public long[] getIds()
+    {
+        return ids.clone();
+    }
+
+    public enum Kind
+    {
+        GUILD,
+        CHANNEL,
+        CATEGORY,
+        ROLE,
+        PRIVATE
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The Command Gate<br><br>
+ *
+ *
+ * Tells, on the JDA event thread, if a message may be a command: if it starts
+ * (ignoring leading whitespaces) with one of the prefixes the bot may use, or
+ * with a mention of the bot.<br>
+ * The patterns are kept in a trie, walked once without allocating anything,
+ * so messages that can't be commands are discarded before creating any
+ * context or task. The {@link PrefixResolver} walks the same trie to find
+ * the prefix of a message.
+ */
+public class CommandGate
+{
+    private final Node root;
+
+    /**
+     * @param prefixes Every prefix the bot may use (null ones are ignored)
+     * @param selfId The ID of the bot user, or null if the mention can't be used as a prefix
+     */
+    public CommandGate(Collection<String> prefixes, String selfId)
+    {
+        this.root = new Node();
+
+        for (String prefix : prefixes)
+        {
+            if (prefix != null)
+            {
+                root.add(prefix, 0, false);
+            }
+        }
+
+        if (selfId != null)
+        {
+            root.add("<@" + selfId + ">", 0, true);
+            root.add("<@!" + selfId + ">", 0, true);
+        }
+    }
+
+    /**
+     * @param content The raw content of a message
+     *
+     * @return If the message may be a command
+     */
+    public boolean matches(String content)
+    {
+        Node node = root;
+        int i = skipWhitespaces(content, 0);
+
+        while (true)
+        {
+            if (node.pattern != null)
+            {
+                return true;
+            }
+
+            if (i == content.length() || (node = node.child(content.charAt(i++))) == null)
+            {
+                return false;
+            }
+        }
+    }
+
+    Node getRoot()
+    {
+        return root;
+    }
+
+    static int skipWhitespaces(String content, int i)
+    {
+        while (i < content.length() && Character.isWhitespace(content.charAt(i)))
+        {
+            i++;
+        }
+
+        return i;
+    }
+
+    static class Node
+    {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+
+        private String pattern;
+        private boolean mention;
+
+        Node child(char c)
+        {
+            int i = Arrays.binarySearch(keys, c);
+            return i < 0 ? null : children[i];
+        }
+
+        /**
+         * @return The pattern ending at this node, or null
+         */
+        String getPattern()
+        {
+            return pattern;
+        }
+
+        /**
+         * @return If the pattern ending at this node is a mention of the bot
+         */
+        boolean isMention()
+        {
+            return mention;
+        }
+
+        void add(String value, int i, boolean mention)
+        {
+            if (i == value.length())
+            {
+                this.pattern = value;
+                this.mention = mention;
+
+                return;
+            }
+
+            char c = value.charAt(i);
+            int index = Arrays.binarySearch(keys, c);
+
+            if (index < 0)
+            {
+                index = -index - 1;
+
+                char[] keys = new char[this.keys.length + 1];
+                Node[] children = new Node[keys.length];
+
+                System.arraycopy(this.keys, 0, keys, 0, index);
+                System.arraycopy(this.children, 0, children, 0, index);
+                System.arraycopy(this.keys, index, keys, index + 1, this.keys.length - index);
+                System.arraycopy(this.children, index, children, index + 1, this.children.length - index);
+
+                keys[index] = c;
+                children[index] = new Node();
+
+                this.keys = keys;
+                this.children = children;
+            }
+
+            children[index].add(value, i + 1, mention);
+        }
+    }
+}
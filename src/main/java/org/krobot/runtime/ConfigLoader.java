@@ -28,11 +28,15 @@ import java.nio.charset.Charset;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.fusesource.jansi.Ansi.Color;
+import org.krobot.Krobot;
 import org.krobot.KrobotModule;
 import org.krobot.config.BridgeConfig;
 import org.krobot.config.ConfigRules;
 import org.krobot.config.ConfigRules.DefaultPath;
+import org.krobot.config.ConfigRules.Storage;
 import org.krobot.config.FileConfig;
+import org.krobot.config.JournalConfig;
+import org.krobot.config.LazyConfigFolder;
 import org.krobot.module.ImportRules.ConfigBridge;
 import org.krobot.util.ColoredLogger;
 
@@ -66,6 +70,12 @@ public class ConfigLoader
             return;
         }
 
+        if (rules.getStorage() == Storage.LAZY_FOLDER)
+        {
+            loadFolder(rules);
+            return;
+        }
+
         String path = rules.getPath();
 
         if (!path.contains("."))
@@ -129,7 +139,24 @@ public class ConfigLoader
 
         try
         {
-            module.getConfig().register(name, new FileConfig(file));
+            long flushWindow = flushWindow(rules, 0);
+
+            if (rules.getStorage() == Storage.JOURNAL)
+            {
+                module.getConfig().register(name, new JournalConfig(file));
+            }
+            else
+            {
+                FileConfig config = new FileConfig(file, flushWindow);
+                ConfigWatcher watcher = KrobotRuntime.get().getConfigWatcher();
+
+                if (watcher != null)
+                {
+                    watcher.watch(config);
+                }
+
+                module.getConfig().register(name, config);
+            }
         }
         catch (IOException e)
         {
@@ -142,6 +169,36 @@ public class ConfigLoader
                  (rules.getDef() == null || (rules.getDef() != null && !file.exists() && def == null) ? "as empty config" : (def != null ? "from default file '" + def + "'" : "from file '" + file + "'")));
     }
 
+    private void loadFolder(ConfigRules rules)
+    {
+        File folder = new File(rules.getPath());
+        String name = rules.getName() == null ? folder.getName() : rules.getName();
+
+        folder.mkdirs();
+
+        // Files are only read when used, and by default only saved when dropped or at shutdown
+        module.getConfig().register(name, new LazyConfigFolder(folder, rules.getMaxLoaded(), flushWindow(rules, -1)));
+
+        log.info("Defined lazy config folder '{}' ({}, at most {} files loaded)", name, folder, rules.getMaxLoaded());
+    }
+
+    /**
+     * @param def The flush window used if the config has none and no default one is set
+     *
+     * @return The flush window of the config, or the default one ({@link Krobot#PROPERTY_CONFIG_FLUSH_WINDOW}) if it has none
+     */
+    private static long flushWindow(ConfigRules rules, long def)
+    {
+        long flushWindow = rules.getFlushWindow();
+
+        if (flushWindow < 0)
+        {
+            flushWindow = Long.getLong(Krobot.PROPERTY_CONFIG_FLUSH_WINDOW, def);
+        }
+
+        return flushWindow;
+    }
+
     public void load(Pair<ConfigBridge, KrobotModule> pair)
     {
         ConfigBridge bridge = pair.getLeft();
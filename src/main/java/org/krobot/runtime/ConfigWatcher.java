@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fusesource.jansi.Ansi.Color;
+import org.krobot.config.FileConfig;
+import org.krobot.util.ColoredLogger;
+
+/**
+ * Watches the directories of the file configs, and reloads them (see
+ * {@link FileConfig#reload()}) when they are edited while the bot is running
+ */
+public class ConfigWatcher
+{
+    private static final ColoredLogger log = ColoredLogger.getLogger("ConfigWatcher");
+
+    /**
+     * Editors often write a file in several times, waiting for the end of
+     * the burst before reloading
+     */
+    public static final long SETTLE_DELAY = 100;
+
+    private final WatchService service;
+    private final Map<Path, FileConfig> configs;
+    private final Set<Path> directories;
+    private final Thread thread;
+
+    public ConfigWatcher() throws IOException
+    {
+        this.service = FileSystems.getDefault().newWatchService();
+        this.configs = new ConcurrentHashMap<>();
+        this.directories = ConcurrentHashMap.newKeySet();
+
+        this.thread = new Thread(this::run, "Config Watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Start watching a config
+     *
+     * @param config The config to reload when its file is modified
+     *
+     * @throws IOException If its directory can't be watched
+     */
+    public void watch(FileConfig config) throws IOException
+    {
+        Path file = config.getFile().toPath().toAbsolutePath().normalize();
+        Path directory = file.getParent();
+
+        configs.put(file, config);
+
+        if (directories.add(directory))
+        {
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    private void run()
+    {
+        try
+        {
+            while (true)
+            {
+                WatchKey key = service.take();
+                Thread.sleep(SETTLE_DELAY);
+
+                Set<FileConfig> changed = new LinkedHashSet<>();
+
+                do
+                {
+                    collect(key, changed);
+                }
+                while ((key = service.poll()) != null);
+
+                changed.forEach(this::reload);
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException ignored)
+        {
+        }
+    }
+
+    private void collect(WatchKey key, Set<FileConfig> changed)
+    {
+        Path directory = (Path) key.watchable();
+
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+            {
+                configs.forEach((file, config) -> {
+                    if (file.getParent().equals(directory))
+                    {
+                        changed.add(config);
+                    }
+                });
+
+                continue;
+            }
+
+            FileConfig config = configs.get(directory.resolve((Path) event.context()));
+
+            if (config != null)
+            {
+                changed.add(config);
+            }
+        }
+
+        key.reset();
+    }
+
+    private void reload(FileConfig config)
+    {
+        try
+        {
+            // Saves of the config itself are recognized and ignored by reload()
+            if (config.reload())
+            {
+                log.info("Reloaded config {}", config.getFile());
+            }
+        }
+        catch (IOException e)
+        {
+            // Probably half-written, the next event will reload it
+            log.warn(Color.YELLOW, "Can't reload config {} : {}, keeping the previous one", config.getFile(), e.getMessage());
+        }
+    }
+
+    public void close()
+    {
+        thread.interrupt();
+
+        try
+        {
+            service.close();
+        }
+        catch (IOException ignored)
+        {
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+/**
+ * The decisions taken by the {@link FilterRunner} for one message: which
+ * filters matched it and which modules are enabled for it.<br><br>
+ *
+ * Each filter predicate is run at most once per message, the results are
+ * kept as bitsets indexed by filter and module indices. A message is
+ * handled by one task at a time, so this isn't synchronized.
+ */
+public final class FilterDecisions
+{
+    private final long[] evaluated;
+    private final long[] matched;
+    private final long[] known;
+    private final long[] enabled;
+
+    FilterDecisions(int filters, int modules)
+    {
+        this.evaluated = new long[words(filters)];
+        this.matched = new long[words(filters)];
+        this.known = new long[words(modules)];
+        this.enabled = new long[words(modules)];
+    }
+
+    /**
+     * @return The cached result of a filter, or null if it wasn't run yet
+     */
+    Boolean getFilter(int index)
+    {
+        if (!get(evaluated, index))
+        {
+            return null;
+        }
+
+        return get(matched, index);
+    }
+
+    void setFilter(int index, boolean result)
+    {
+        set(evaluated, index);
+
+        if (result)
+        {
+            set(matched, index);
+        }
+    }
+
+    /**
+     * @return The cached state of a module, or null if it wasn't computed yet
+     */
+    Boolean getModule(int index)
+    {
+        if (!get(known, index))
+        {
+            return null;
+        }
+
+        return get(enabled, index);
+    }
+
+    void setModule(int index, boolean result)
+    {
+        set(known, index);
+
+        if (result)
+        {
+            set(enabled, index);
+        }
+    }
+
+    private static boolean get(long[] bits, int index)
+    {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index)
+    {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static int words(int bits)
+    {
+        return (bits + 63) >>> 6;
+    }
+}
@@ -18,10 +18,11 @@
  */
 package org.krobot.runtime;
 
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import net.dv8tion.jda.api.entities.Guild;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.krobot.KrobotModule;
@@ -35,70 +36,235 @@ public class FilterRunner
 
     private KrobotRuntime runtime;
     private ComputedModule[] modules;
+    private Map<KrobotModule, Integer> indices;
+
+    private FilterRules[] filters;
+    private int[] offsets;
+    private int[] watchers;
+    private int[] prefixFilters;
+    private ScopeTable scopes;
 
     public FilterRunner(KrobotRuntime runtime, ComputedModule[] modules)
     {
         this.runtime = runtime;
         this.modules = modules;
+        this.indices = new IdentityHashMap<>();
+
+        for (int i = 0; i < modules.length; i++)
+        {
+            indices.put(modules[i].getModule(), i);
+        }
+
+        compile();
+    }
+
+    /**
+     * Indexes the filters of every module (and the IDs of the scope filters),
+     * lists the modules having filter handlers and the root filters setting
+     * a prefix. Must be called again if filters are added after the
+     * construction of the runner
+     */
+    public void compile()
+    {
+        this.offsets = new int[modules.length + 1];
+
+        for (int i = 0; i < modules.length; i++)
+        {
+            offsets[i + 1] = offsets[i] + modules[i].getFilters().size();
+        }
+
+        this.filters = Stream.of(modules).flatMap(module -> module.getFilters().stream()).toArray(FilterRules[]::new);
+        this.scopes = new ScopeTable(filters);
+
+        this.watchers = IntStream.range(0, modules.length)
+                                 .filter(i -> IntStream.range(offsets[i], offsets[i + 1]).anyMatch(f -> !filters[f].getHandlers().isEmpty()))
+                                 .toArray();
+
+        int root = indexOf(runtime.getRootModule().getModule());
+
+        this.prefixFilters = root == -1 ? new int[0] : IntStream.range(offsets[root], offsets[root + 1])
+                                                                .filter(f -> filters[f].getPrefix() != null)
+                                                                .toArray();
+    }
+
+    /**
+     * @return If at least one module has filter handlers, which need to see every message
+     */
+    public boolean hasHandlers()
+    {
+        return watchers.length > 0;
     }
 
     public void runFilters(MessageContext context)
     {
-        getEnabledModules(context)
-            .forEach(module -> module.getFilters().stream()
-                                     .filter(filter -> filter.getFilter().filter(context))
-                                     .map(FilterRules::getHandlers)
-                                     .forEach(hs -> hs.forEach(h -> h.handle(context))));
+        for (int module : watchers)
+        {
+            if (!isEnabled(context, module))
+            {
+                continue;
+            }
+
+            for (int f = offsets[module]; f < offsets[module + 1]; f++)
+            {
+                if (!filters[f].getHandlers().isEmpty() && matches(context, f))
+                {
+                    filters[f].getHandlers().forEach(h -> h.handle(context));
+                }
+            }
+        }
     }
 
+    /**
+     * @param context The context of a message
+     *
+     * @return The prefix commands must have in the context, null if they don't need one
+     *
+     * @see PrefixResolver#getPrefix(MessageContext)
+     */
     public String getPrefix(MessageContext context)
     {
-        String prefix = runtime.getPrefix();
+        return runtime.getPrefixResolver().getPrefix(context);
+    }
+
+    /**
+     * @return The prefixes set by the root module filters
+     */
+    public String[] getFilterPrefixes()
+    {
+        return IntStream.of(prefixFilters).mapToObj(f -> filters[f].getPrefix()).distinct().toArray(String[]::new);
+    }
 
-        List<String> results = runtime.getRootModule().getFilters().stream()
-                                      .filter(filter -> filter.getFilter().filter(context))
-                                      .map(FilterRules::getPrefix)
-                                      .collect(Collectors.toList());
+    /**
+     * @param context The context of a message
+     *
+     * @return The prefix set by the root module filter matching the context, or null if none does
+     */
+    public String getFilterPrefix(MessageContext context)
+    {
+        String prefix = null;
 
-        if (results.size() > 1)
+        for (int f : prefixFilters)
         {
-            log.error("Multiple filters in root module applied a prefix modification, base prefix will be kept");
-            log.error("This is definitely a development error, please fix this");
-        }
-        else if (results.size() != 0)
-        {
-            prefix = results.get(0);
+            if (!matches(context, f))
+            {
+                continue;
+            }
+
+            if (prefix != null)
+            {
+                log.error("Multiple filters in root module applied a prefix modification, base prefix will be kept");
+                log.error("This is definitely a development error, please fix this");
+
+                return null;
+            }
+
+            prefix = filters[f].getPrefix();
         }
 
         return prefix;
     }
 
+    /**
+     * @param module A module
+     *
+     * @return Its index in this runner, or -1 if it isn't loaded
+     */
+    public int indexOf(KrobotModule module)
+    {
+        Integer index = indices.get(module);
+        return index == null ? -1 : index;
+    }
+
     public boolean isDisabled(MessageContext context, KrobotModule module)
     {
-        for (ComputedModule computedModule : modules)
+        int index = indexOf(module);
+        return index != -1 && !isEnabled(context, index);
+    }
+
+    /**
+     * @param context The context of a message
+     * @param module The index of a module (see {@link #indexOf(KrobotModule)})
+     *
+     * @return If the module wasn't disabled in the guild of the context, and
+     *         if no filter disabling the module matches the context
+     */
+    public boolean isEnabled(MessageContext context, int module)
+    {
+        GuildModules guildModules = runtime.getGuildModules();
+        Guild guild = context.getGuild();
+
+        if (guildModules != null && guild != null && guildModules.isDisabled(guild.getIdLong(), module))
         {
-            if (computedModule.getModule() == module)
-            {
-                for (FilterRules rules : computedModule.getFilters())
-                {
-                    boolean result = rules.getFilter().filter(context);
+            return false;
+        }
 
-                    if (result && rules.isDisabled())
-                    {
-                        return true;
-                    }
-                }
+        FilterDecisions decisions = decisions(context);
+        Boolean enabled = decisions.getModule(module);
+
+        if (enabled != null)
+        {
+            return enabled;
+        }
 
-                return false;
+        boolean result = true;
+
+        for (int f = offsets[module]; f < offsets[module + 1]; f++)
+        {
+            if (filters[f].isDisabled() && matches(context, f))
+            {
+                result = false;
+                break;
             }
         }
 
-        return false;
+        decisions.setModule(module, result);
+        return result;
+    }
+
+    public ComputedModule[] getModules()
+    {
+        return modules;
     }
 
     public Stream<ComputedModule> getEnabledModules(MessageContext context)
     {
-        return Stream.of(modules)
-                     .filter(module -> !isDisabled(context, module.getModule()));
+        return IntStream.range(0, modules.length)
+                        .filter(i -> isEnabled(context, i))
+                        .mapToObj(i -> modules[i]);
+    }
+
+    private boolean matches(MessageContext context, int filter)
+    {
+        FilterDecisions decisions = decisions(context);
+        Boolean matched = decisions.getFilter(filter);
+
+        if (matched != null)
+        {
+            return matched;
+        }
+
+        if (scopes.isScoped(filter))
+        {
+            scopes.resolve(context, decisions);
+            return decisions.getFilter(filter);
+        }
+
+        boolean result = filters[filter].getFilter().filter(context);
+        decisions.setFilter(filter, result);
+
+        return result;
+    }
+
+    private FilterDecisions decisions(MessageContext context)
+    {
+        FilterDecisions decisions = context.getFilterDecisions();
+
+        if (decisions == null)
+        {
+            decisions = new FilterDecisions(filters.length, modules.length);
+            context.setFilterDecisions(decisions);
+        }
+
+        return decisions;
     }
 }
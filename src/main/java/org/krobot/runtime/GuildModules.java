@@ -0,0 +1,263 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.fusesource.jansi.Ansi.Color;
+import org.krobot.KrobotModule;
+import org.krobot.config.Config;
+import org.krobot.config.FileConfig;
+import org.krobot.util.ColoredLogger;
+import org.krobot.util.LongMap;
+
+import com.google.common.io.Files;
+
+/**
+ * The Guild Modules<br><br>
+ *
+ *
+ * Modules disabled per guild at runtime, without any filter: one bitset of
+ * module indices (see {@link FilterRunner#indexOf(KrobotModule)}) per guild
+ * ID, checked in constant time by the {@link FilterRunner}.<br><br>
+ *
+ * Changes are persisted in a config (by module class name, indices aren't
+ * stable between versions), loaded at startup. Reads never lock, the table
+ * is replaced on each change.
+ */
+public class GuildModules
+{
+    private static final ColoredLogger log = ColoredLogger.getLogger("GuildModules");
+    private static final String GUILDS = "guilds";
+
+    private final FilterRunner filterRunner;
+    private final File file;
+
+    private Config config;
+    private volatile LongMap<long[]> disabled;
+
+    /**
+     * @param filterRunner The filter runner, giving the module indices
+     * @param file The file of the config where the changes are saved, created on the first change
+     */
+    public GuildModules(FilterRunner filterRunner, File file)
+    {
+        this.filterRunner = filterRunner;
+        this.file = file;
+        this.disabled = new LongMap<>();
+
+        if (file.exists())
+        {
+            try
+            {
+                this.config = new FileConfig(file);
+                load();
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException("Exception while loading guild modules (at " + file + ")", e);
+            }
+        }
+    }
+
+    /**
+     * @param guildId The ID of a guild
+     * @param module The index of a module
+     *
+     * @return If the module was disabled in this guild
+     */
+    public boolean isDisabled(long guildId, int module)
+    {
+        long[] bits = disabled.get(guildId);
+        return bits != null && (module >>> 6) < bits.length && (bits[module >>> 6] & (1L << module)) != 0;
+    }
+
+    /**
+     * @param guildId The ID of a guild
+     * @param module A module
+     *
+     * @return If the module is enabled in this guild (ignoring the filters)
+     */
+    public boolean isEnabled(long guildId, Class<? extends KrobotModule> module)
+    {
+        return !isDisabled(guildId, indexOf(module));
+    }
+
+    /**
+     * Enable or disable a module in a guild, and save the change
+     *
+     * @param guildId The ID of the guild
+     * @param module The module to enable or disable
+     * @param enabled If the module must be enabled
+     */
+    public synchronized void setEnabled(long guildId, Class<? extends KrobotModule> module, boolean enabled)
+    {
+        int index = indexOf(module);
+
+        if (isDisabled(guildId, index) != enabled)
+        {
+            return;
+        }
+
+        LongMap<long[]> table = disabled.copy();
+        long[] bits = table.get(guildId);
+
+        bits = bits == null ? new long[(index >>> 6) + 1] : Arrays.copyOf(bits, Math.max(bits.length, (index >>> 6) + 1));
+
+        if (enabled)
+        {
+            bits[index >>> 6] &= ~(1L << index);
+        }
+        else
+        {
+            bits[index >>> 6] |= 1L << index;
+        }
+
+        if (isEmpty(bits))
+        {
+            table.remove(guildId);
+        }
+        else
+        {
+            table.put(guildId, bits);
+        }
+
+        this.disabled = table;
+
+        config().set(GUILDS + "." + guildId, names(bits));
+    }
+
+    private Config config()
+    {
+        if (config == null)
+        {
+            try
+            {
+                file.getAbsoluteFile().getParentFile().mkdirs();
+                Files.write("{}", file, Charset.defaultCharset());
+
+                config = new FileConfig(file);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException("Error while creating guild modules config in '" + file + "'", e);
+            }
+        }
+
+        return config;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load()
+    {
+        Map<String, List<String>> guilds = config.get(GUILDS, null, Map.class);
+
+        if (guilds == null)
+        {
+            return;
+        }
+
+        LongMap<long[]> table = new LongMap<>(guilds.size());
+        ModuleLoader.ComputedModule[] modules = filterRunner.getModules();
+
+        guilds.forEach((id, names) -> {
+            long[] bits = new long[(modules.length + 63) >>> 6];
+
+            for (String name : names)
+            {
+                int index = indexOf(modules, name);
+
+                if (index == -1)
+                {
+                    log.warn(Color.YELLOW, "Unknown module '{}' disabled in guild {}, ignoring it", name, id);
+                    continue;
+                }
+
+                bits[index >>> 6] |= 1L << index;
+            }
+
+            if (!isEmpty(bits))
+            {
+                table.put(Long.parseLong(id), bits);
+            }
+        });
+
+        this.disabled = table;
+        log.info("Loaded disabled modules of {} guilds", table.size());
+    }
+
+    private List<String> names(long[] bits)
+    {
+        ModuleLoader.ComputedModule[] modules = filterRunner.getModules();
+        List<String> names = new ArrayList<>();
+
+        for (int i = 0; i < modules.length; i++)
+        {
+            if ((i >>> 6) < bits.length && (bits[i >>> 6] & (1L << i)) != 0)
+            {
+                names.add(modules[i].getModule().getClass().getName());
+            }
+        }
+
+        return names;
+    }
+
+    private int indexOf(Class<? extends KrobotModule> module)
+    {
+        int index = indexOf(filterRunner.getModules(), module.getName());
+
+        if (index == -1)
+        {
+            throw new IllegalArgumentException("Module " + module.getName() + " isn't loaded");
+        }
+
+        return index;
+    }
+
+    private static int indexOf(ModuleLoader.ComputedModule[] modules, String name)
+    {
+        for (int i = 0; i < modules.length; i++)
+        {
+            if (modules[i].getModule().getClass().getName().equals(name))
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isEmpty(long[] bits)
+    {
+        for (long word : bits)
+        {
+            if (word != 0)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
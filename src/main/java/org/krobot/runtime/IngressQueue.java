@@ -0,0 +1,406 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.dv8tion.jda.api.entities.Guild;
+import org.krobot.MessageContext;
+
+/**
+ * The Ingress Queue<br><br>
+ *
+ *
+ * Bounds the number of received messages waiting to be handled.<br>
+ * When it is full, the {@link OverflowPolicy} decides which message is shed,
+ * and messages that waited more than the max queue age are dropped instead
+ * of being handled.<br><br>
+ *
+ * A message is queued by {@link #offer(MessageContext, boolean)} and leaves
+ * the queue when a worker {@link #start(Entry) starts} it. A shed entry
+ * releases its message, so the executors only keep a light tombstone of it
+ * until a worker skips it.
+ */
+public class IngressQueue
+{
+    private static final int QUEUED = 0;
+    private static final int STARTED = 1;
+    private static final int SHED = 2;
+
+    private static final long BUSY_REPLY_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final String BUSY_MESSAGE = "Le bot est surchargé, réessayez dans quelques instants";
+
+    private final OverflowPolicy policy;
+    private final int capacity;
+    private final long maxAge;
+
+    private final AtomicInteger queued;
+    private final AtomicLong shed;
+    private final AtomicLong expired;
+    private final AtomicLong lastBusyReply;
+
+    private final ConcurrentLinkedDeque<Entry> droppable;
+
+    // Guarded by groups, only used by SHED_GUILD
+    private final Map<Long, Group> groups;
+    private final TreeSet<Group> ranking;
+
+    /**
+     * @param policy What to do with the received messages when the queue is full
+     * @param capacity The maximum number of queued messages
+     * @param maxAge The time after which a queued message is dropped, in milliseconds (0 to disable it)
+     */
+    public IngressQueue(OverflowPolicy policy, int capacity, long maxAge)
+    {
+        this.policy = policy;
+        this.capacity = capacity;
+        this.maxAge = TimeUnit.MILLISECONDS.toNanos(maxAge);
+
+        this.queued = new AtomicInteger();
+        this.shed = new AtomicLong();
+        this.expired = new AtomicLong();
+        this.lastBusyReply = new AtomicLong(System.nanoTime() - BUSY_REPLY_INTERVAL);
+
+        this.droppable = new ConcurrentLinkedDeque<>();
+        this.groups = new HashMap<>();
+        this.ranking = new TreeSet<>(Comparator.comparingInt((Group group) -> group.size).thenComparingLong(group -> group.id));
+    }
+
+    /**
+     * Queue a received message, shedding one if the queue is full
+     *
+     * @param context The context of the message
+     * @param command If the message looks like a command
+     *
+     * @return The queued entry, or null if the message was shed
+     */
+    public Entry offer(MessageContext context, boolean command)
+    {
+        Entry entry = new Entry(context, command);
+
+        while (true)
+        {
+            int size = queued.get();
+
+            if (size < capacity)
+            {
+                if (queued.compareAndSet(size, size + 1))
+                {
+                    break;
+                }
+
+                continue;
+            }
+
+            if (!evict(entry))
+            {
+                shed.incrementAndGet();
+
+                if (policy == OverflowPolicy.REPLY_BUSY && command)
+                {
+                    replyBusy(context);
+                }
+
+                return null;
+            }
+        }
+
+        // Tracked before being submitted, so it can't be started before
+        if (policy == OverflowPolicy.DROP_OLDEST && !command)
+        {
+            droppable.offerLast(entry);
+        }
+        else if (policy == OverflowPolicy.SHED_GUILD)
+        {
+            long id = groupOf(context);
+
+            synchronized (groups)
+            {
+                Group group = groups.get(id);
+
+                if (group == null)
+                {
+                    group = new Group(id);
+                    groups.put(id, group);
+                }
+
+                resize(group, 1);
+
+                entry.group = group;
+                group.entries.offerLast(entry);
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Make an entry leave the queue to be handled
+     *
+     * @param entry The entry to start
+     *
+     * @return False if the entry was shed or expired, and must not be handled
+     */
+    public boolean start(Entry entry)
+    {
+        if (!leave(entry, STARTED))
+        {
+            return false;
+        }
+
+        if (maxAge > 0 && System.nanoTime() - entry.queuedAt > maxAge)
+        {
+            expired.incrementAndGet();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Shed an entry that couldn't be submitted
+     *
+     * @param entry The entry to shed
+     */
+    public void cancel(Entry entry)
+    {
+        if (leave(entry, SHED))
+        {
+            entry.context = null;
+            shed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Shed a command whose ordering queue is full (see
+     * {@link KeyedExecutor#submit}). It is answered like an overflow of this
+     * queue, as it would else be ignored without any notice.
+     *
+     * @param entry The entry to shed
+     */
+    public void reject(Entry entry)
+    {
+        MessageContext context = entry.getContext();
+
+        cancel(entry);
+
+        if (policy == OverflowPolicy.REPLY_BUSY && context != null)
+        {
+            replyBusy(context);
+        }
+    }
+
+    private boolean leave(Entry entry, int state)
+    {
+        if (!entry.state.compareAndSet(QUEUED, state))
+        {
+            return false;
+        }
+
+        queued.decrementAndGet();
+
+        // Entries mostly leave in order, so they are found near the head
+        if (entry.group != null)
+        {
+            synchronized (groups)
+            {
+                resize(entry.group, -1);
+            }
+
+            entry.group.entries.remove(entry);
+        }
+        else if (policy == OverflowPolicy.DROP_OLDEST && !entry.command)
+        {
+            droppable.remove(entry);
+        }
+
+        return true;
+    }
+
+    private boolean evict(Entry incoming)
+    {
+        switch (policy)
+        {
+            case DROP_OLDEST:
+                return evictFrom(droppable);
+            case SHED_GUILD:
+                Group heaviest;
+
+                synchronized (groups)
+                {
+                    heaviest = ranking.isEmpty() ? null : ranking.last();
+                }
+
+                return heaviest != null && heaviest.id != groupOf(incoming.context) && evictFrom(heaviest.entries);
+            default:
+                return false;
+        }
+    }
+
+    private boolean evictFrom(ConcurrentLinkedDeque<Entry> entries)
+    {
+        Entry victim;
+
+        while ((victim = entries.pollFirst()) != null)
+        {
+            if (victim.state.compareAndSet(QUEUED, SHED))
+            {
+                victim.context = null;
+
+                queued.decrementAndGet();
+                shed.incrementAndGet();
+
+                if (victim.group != null)
+                {
+                    synchronized (groups)
+                    {
+                        resize(victim.group, -1);
+                    }
+                }
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Change the size of a group, keeping the ranking sorted and removing
+     * the group once empty. Must be called while holding the groups lock.
+     */
+    private void resize(Group group, int delta)
+    {
+        ranking.remove(group);
+        group.size += delta;
+
+        if (group.size > 0)
+        {
+            ranking.add(group);
+        }
+        else
+        {
+            groups.remove(group.id, group);
+        }
+    }
+
+    private static long groupOf(MessageContext context)
+    {
+        Guild guild = context.getGuild();
+        return guild != null ? guild.getIdLong() : 0L;
+    }
+
+    private void replyBusy(MessageContext context)
+    {
+        long last = lastBusyReply.get();
+        long now = System.nanoTime();
+
+        if (now - last >= BUSY_REPLY_INTERVAL && lastBusyReply.compareAndSet(last, now))
+        {
+            context.getChannel().sendMessage(BUSY_MESSAGE).queue(null, ignored -> {});
+        }
+    }
+
+    public OverflowPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return The number of messages currently waiting to be handled
+     */
+    public int getQueued()
+    {
+        return queued.get();
+    }
+
+    /**
+     * @return The total number of messages shed because the queue was full
+     */
+    public long getShed()
+    {
+        return shed.get();
+    }
+
+    /**
+     * @return The total number of messages dropped because they waited too long
+     */
+    public long getExpired()
+    {
+        return expired.get();
+    }
+
+    /**
+     * A queued message
+     */
+    public static class Entry
+    {
+        private volatile MessageContext context;
+        private final boolean command;
+        private final long queuedAt;
+        private final AtomicInteger state;
+
+        private Group group;
+
+        Entry(MessageContext context, boolean command)
+        {
+            this.context = context;
+            this.command = command;
+            this.queuedAt = System.nanoTime();
+            this.state = new AtomicInteger(QUEUED);
+        }
+
+        /**
+         * @return The context of the message, or null once it was shed
+         */
+        public MessageContext getContext()
+        {
+            return context;
+        }
+
+        public boolean isCommand()
+        {
+            return command;
+        }
+    }
+
+    private static class Group
+    {
+        private final long id;
+        private final ConcurrentLinkedDeque<Entry> entries;
+        private int size;
+
+        Group(long id)
+        {
+            this.id = id;
+            this.entries = new ConcurrentLinkedDeque<>();
+        }
+    }
+}
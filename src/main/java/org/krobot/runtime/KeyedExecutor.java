@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import org.krobot.util.ColoredLogger;
+
+/**
+ * The Keyed Executor<br><br>
+ *
+ *
+ * Runs tasks on a shared executor, but one at a time and in submission
+ * order for tasks of a same key (by example a channel ID).<br>
+ * A task may return a stage, the next task of its key then waits for the
+ * stage to be completed, so asynchronous tasks stay ordered too.<br><br>
+ *
+ * Each key has its own lock, only held to queue or take a task, and the
+ * queue of each key is capped so a flooded key can't take every worker.
+ */
+public class KeyedExecutor
+{
+    private static final ColoredLogger log = ColoredLogger.getLogger("KeyedExecutor");
+
+    /**
+     * Number of tasks of a key run in a row before letting the other keys use the worker
+     */
+    private static final int BATCH_SIZE = 16;
+
+    private final Executor workers;
+    private final int queueCap;
+    private final ConcurrentHashMap<Long, Lane> lanes;
+
+    /**
+     * @param workers The executor running the tasks
+     * @param queueCap The maximum number of pending tasks per key (including the running one)
+     */
+    public KeyedExecutor(Executor workers, int queueCap)
+    {
+        this.workers = workers;
+        this.queueCap = queueCap;
+        this.lanes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Submit a task, it will be run after every task previously submitted with
+     * the same key (and after the completion of the stages they returned)
+     *
+     * @param key The key of the task
+     * @param task The task, may return a stage (or null)
+     *
+     * @return False if the task was rejected because the queue of its key is full
+     */
+    public boolean submit(long key, Supplier<? extends CompletionStage<?>> task)
+    {
+        while (true)
+        {
+            Lane lane = lanes.computeIfAbsent(key, Lane::new);
+            boolean first;
+
+            synchronized (lane)
+            {
+                if (lane.dead)
+                {
+                    // Removed once empty, a new one will be created
+                    continue;
+                }
+
+                if (lane.size >= queueCap)
+                {
+                    if (!lane.overflowing)
+                    {
+                        lane.overflowing = true;
+                        log.warn("The queue of key {} is full ({} tasks), rejecting its new tasks", key, queueCap);
+                    }
+
+                    return false;
+                }
+
+                lane.tasks.offer(task);
+                first = lane.size++ == 0;
+            }
+
+            if (first)
+            {
+                schedule(lane);
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * @return The number of keys having pending tasks
+     */
+    public int getActiveKeys()
+    {
+        return lanes.size();
+    }
+
+    private void schedule(Lane lane)
+    {
+        try
+        {
+            workers.execute(() -> drain(lane));
+        }
+        catch (RejectedExecutionException e)
+        {
+            log.error("Worker executor rejected the tasks of key {}, dropping them", lane.key);
+
+            synchronized (lane)
+            {
+                lane.tasks.clear();
+                lane.size = 0;
+                lane.dead = true;
+                lanes.remove(lane.key, lane);
+            }
+        }
+    }
+
+    private void drain(Lane lane)
+    {
+        for (int ran = 0; ran < BATCH_SIZE; ran++)
+        {
+            Supplier<? extends CompletionStage<?>> task = poll(lane);
+            CompletableFuture<?> stage = null;
+
+            try
+            {
+                CompletionStage<?> result = task.get();
+
+                if (result != null)
+                {
+                    stage = result.toCompletableFuture();
+                }
+            }
+            catch (Throwable t)
+            {
+                log.error("Error while running task of key " + lane.key, t);
+            }
+
+            if (stage != null && !stage.isDone())
+            {
+                stage.whenComplete((result, t) -> {
+                    if (next(lane))
+                    {
+                        schedule(lane);
+                    }
+                });
+
+                return;
+            }
+
+            if (!next(lane))
+            {
+                return;
+            }
+        }
+
+        // Giving the worker back to the other keys
+        schedule(lane);
+    }
+
+    /**
+     * Mark the current task of a lane as done
+     *
+     * @return If the lane has another task to run
+     */
+    private boolean next(Lane lane)
+    {
+        synchronized (lane)
+        {
+            // Logged again the next time it is full
+            lane.overflowing = false;
+
+            if (--lane.size > 0)
+            {
+                return true;
+            }
+
+            lane.dead = true;
+            lanes.remove(lane.key, lane);
+
+            return false;
+        }
+    }
+
+    private Supplier<? extends CompletionStage<?>> poll(Lane lane)
+    {
+        synchronized (lane)
+        {
+            // Counted in the size with the same lock, so it is always there
+            return lane.tasks.poll();
+        }
+    }
+
+    private static class Lane
+    {
+        private final long key;
+
+        // Guarded by the lane
+        private final Queue<Supplier<? extends CompletionStage<?>>> tasks;
+        private int size;
+        private boolean dead;
+        private boolean overflowing;
+
+        Lane(long key)
+        {
+            this.key = key;
+            this.tasks = new ArrayDeque<>();
+        }
+    }
+}
@@ -21,13 +21,26 @@ package org.krobot.runtime;
 import static org.fusesource.jansi.Ansi.ansi;
 import static org.fusesource.jansi.Ansi.Color.BLUE;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -36,7 +49,6 @@ import java.util.stream.Stream;
 import javax.security.auth.login.LoginException;
 
 import net.dv8tion.jda.api.entities.ChannelType;
-import net.dv8tion.jda.api.entities.MessageChannel;
 import org.fusesource.jansi.Ansi;
 import org.fusesource.jansi.Ansi.Color;
 import org.fusesource.jansi.AnsiConsole;
@@ -45,23 +57,29 @@ import org.krobot.Krobot;
 import org.krobot.KrobotModule;
 import org.krobot.MessageContext;
 import org.krobot.command.Command;
+import org.krobot.command.CommandArgument;
+import org.krobot.command.CommandDescriptor;
 import org.krobot.command.CommandFilter;
 import org.krobot.command.CommandHandler;
 import org.krobot.command.CommandManager;
+import org.krobot.command.DisableMention;
 import org.krobot.command.ExceptionHandler;
 import org.krobot.command.KrobotCommand;
 import org.krobot.command.PathCompiler;
+import org.krobot.config.ConfigFlusher;
 import org.krobot.console.ExitCommand;
 import org.krobot.console.HelpCommand;
 import org.krobot.console.KrobotConsole;
+import org.krobot.module.FilterRules;
 import org.krobot.module.Include;
-import org.krobot.module.LoadModule;
 import org.krobot.runtime.ModuleLoader.ComputedModule;
 import org.krobot.util.ColoredLogger;
 
+import com.google.inject.ConfigurationException;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
+import com.google.inject.spi.InjectionPoint;
 
 import net.dv8tion.jda.api.AccountType;
 import net.dv8tion.jda.api.JDA;
@@ -71,24 +89,35 @@ import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.priv.PrivateMessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.AnnotatedEventManager;
 import net.dv8tion.jda.api.hooks.SubscribeEvent;
+import net.dv8tion.jda.api.utils.Compression;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
 
 public class KrobotRuntime
 {
     // TODO: Rolling logger
 
     public static final int DEFAULT_MAX_THREAD = 25;
+    public static final int DEFAULT_ORDERING_QUEUE_CAP = 50;
+    public static final int DEFAULT_INGRESS_CAPACITY = 1000;
+    public static final long DEFAULT_MAX_QUEUE_AGE = 30000;
+    public static final String DEFAULT_GUILD_MODULES = "config/guild-modules.json";
+    public static final String DEFAULT_STARTUP_REPORT = "logs/startup-report.json";
 
     private static final ColoredLogger log = ColoredLogger.getLogger("Krobot");
     private static KrobotRuntime current;
 
     private long startTime;
-    private long time;
+    private StartupReport report;
+    private volatile long gatewayStart;
+    private volatile long gatewayReady;
 
     private Bot bot;
     private Class<? extends KrobotModule> botClass;
     private String token;
 
     private List<RuntimeModule> modules;
+    private Map<Class<? extends KrobotModule>, RuntimeModule> runtimeModules;
     private ComputedModule rootModule;
 
     private JDA jda;
@@ -98,7 +127,17 @@ public class KrobotRuntime
     private CommandManager commandManager;
 
     private int maxThread;
-    private ThreadPoolExecutor threadPool;
+    private ExecutionMode executionMode;
+    private ExecutorService executor;
+    private AtomicInteger inFlight;
+    private MessageOrdering ordering;
+    private KeyedExecutor orderedExecutor;
+    private CompletableFuture<JDA> gateway;
+    private volatile IngressQueue ingress;
+    private PrefixResolver prefixResolver;
+    private GuildModules guildModules;
+    private ConfigWatcher configWatcher;
+    private ExecutorService handlerExecutor;
 
     private KrobotConsole console;
     private StateBar stateBar;
@@ -111,8 +150,10 @@ public class KrobotRuntime
         this.token = token;
 
         this.modules = new ArrayList<>();
+        this.runtimeModules = new HashMap<>();
 
         this.maxThread = DEFAULT_MAX_THREAD;
+        this.inFlight = new AtomicInteger();
 
         this.lastExecutionTime = 0;
     }
@@ -129,6 +170,8 @@ public class KrobotRuntime
             System.exit(1);
         }
 
+        report = new StartupReport(bot, botClass);
+
         String prop = System.getProperty(Krobot.PROPERTY_DISABLE_COLORS);
 
         if (System.console() == null && (prop == null || !prop.equalsIgnoreCase("false")))
@@ -171,68 +214,82 @@ public class KrobotRuntime
         log.info("Running Krobot 3.0.0");
         log.info("Copyright (c) 2017 The Krobot Contributors\n");
 
+        // Modules don't need JDA before their listeners are registered, so connecting meanwhile
+        gateway = connect();
+
         log.infoBold("----> 1/4 Pre-initialization");
-        timerStart();
 
         log.info("Computing modules...");
 
+        long phaseStart = System.nanoTime();
+
         ModuleLoader loader = new ModuleLoader();
         rootModule = loader.load(botClass);
+        loader.link();
 
-        List<ComputedModule> modules = loader.getModules();
+        report.phase("preInit", phaseStart);
+        loader.getPreInitDurations().forEach((module, duration) -> report.module("preInit", module.getModule().getClass(), duration));
 
-        modules.stream()
-                .map(ComputedModule::getModule)
-                .forEach(module -> Stream.of(module.getClass().getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(LoadModule.class))
-                .forEach(field -> {
-                    field.setAccessible(true); try
-                    {
-                        field.set(module,
-                                modules.stream()
-                                        .map(ComputedModule::getModule)
-                                        .filter(m -> m.getClass() == field.getType())
-                                        .findFirst()
-                                        .orElseThrow(() -> new RuntimeException("Cannot load module " + field.getType().getName() + " as it isn't imported. @LoadModule annotation can't be used without @Include / from(...)")));
-                    }
-                    catch (IllegalAccessException ignored) {}
-                    field.setAccessible(false);
-                }));
+        List<ComputedModule> modules = loader.getModules();
+        // One by one by default, modules init may not expect to run concurrently
+        ModuleScheduler scheduler = new ModuleScheduler(modules, (int) longProperty(Krobot.PROPERTY_STARTUP_THREADS, 1));
 
         log.info("Processing configs...");
 
+        if (Boolean.getBoolean(Krobot.PROPERTY_WATCH_CONFIGS))
+        {
+            try
+            {
+                configWatcher = new ConfigWatcher();
+            }
+            catch (IOException e)
+            {
+                log.warn("Can't watch the configs, they won't be reloaded when edited", e);
+            }
+        }
+
         modules.forEach(source -> {
             RuntimeModule module = new RuntimeModule(source);
 
-            ConfigLoader configLoader = new ConfigLoader(module);
-            configLoader.load();
-
             this.modules.add(module);
+            this.runtimeModules.put(source.getModule().getClass(), module);
         });
 
-        log.infoBold("----> Done in " + timerGet() + "ms\n");
+        // Bridges only reference the other modules config providers, so configs don't need any order
+        phaseStart = System.nanoTime();
+        report.phase("configs", phaseStart, scheduler.run("Config loading", false, source -> new ConfigLoader(getRuntimeModule(source.getModule().getClass())).load()));
+
+        log.info("Loaded the configs of {} modules\n", modules.size());
 
         log.infoBold("----> 2/4 Initialization");
-        timerStart();
 
         log.info("Processing dependency injection...");
 
+        phaseStart = System.nanoTime();
+
         List<Module> guiceModules = new ArrayList<>();
         modules.stream().map(m -> m.getModule().getGuiceModules()).forEach(guiceModules::addAll);
         guiceModules.add(new KrobotGuiceModule(this));
 
         injector = Guice.createInjector(guiceModules);
-        this.modules.forEach((module) ->
+
+        report.phase("injector", phaseStart);
+
+        // A module is initialized after the modules it imports or loads, in parallel with the others
+        phaseStart = System.nanoTime();
+        StartupPhase init = scheduler.run("Initialization", true, source ->
         {
-            KrobotModule m = module.getComputed().getModule();
+            KrobotModule module = source.getModule();
 
             try
             {
-                Field field = KrobotModule.class.getDeclaredField("injector");
+                Field field = KrobotModule.class.getDeclaredField("injectorFactory");
+                RuntimeModule runtimeModule = getRuntimeModule(module.getClass());
 
+                // Child injectors are only created for the modules using them
                 field.setAccessible(true);
                 {
-                    field.set(m, injector.createChildInjector(new ModuleModule(module)));
+                    field.set(module, (Supplier<Injector>) () -> createChildInjector(runtimeModule));
                 }
                 field.setAccessible(false);
             }
@@ -240,16 +297,23 @@ public class KrobotRuntime
             {
                 e.printStackTrace();
             }
-        });
 
-        modules.stream().map(ComputedModule::getModule).forEach(module ->
-        {
             log.info("({}) Initialization...", module.getClass().getName());
 
-            module.injector().injectMembers(module);
+            if (hasInjectionPoints(module.getClass()))
+            {
+                module.injector().injectMembers(module);
+            }
+
             module.init();
         });
 
+        report.phase("init", phaseStart, init);
+
+        log.info("Modules initialized");
+
+        phaseStart = System.nanoTime();
+
         prefix = rootModule.getModule().getPrefix();
 
         log.info("Processing filters...");
@@ -257,6 +321,8 @@ public class KrobotRuntime
         modules.forEach(module -> module.getFilters().addAll(module.getModule().getFilters()));
 
         filterRunner = new FilterRunner(this, modules.toArray(new ComputedModule[modules.size()]));
+        guildModules = new GuildModules(filterRunner, new File(System.getProperty(Krobot.PROPERTY_GUILD_MODULES, DEFAULT_GUILD_MODULES)));
+        prefixResolver = new PrefixResolver(filterRunner, prefix, rootModule.getModule().getClass().isAnnotationPresent(DisableMention.class));
 
         modules.forEach(module -> module.getModule().getCommands().forEach(command ->
         {
@@ -333,15 +399,7 @@ public class KrobotRuntime
             commands.forEach(c -> addCommand(m.getModule(), c));
         });
 
-        List<String> labels = new ArrayList<>();
-        commandManager.getCommands().forEach(command -> {
-            if (labels.contains(command.getLabel()))
-            {
-                log.error(Color.RED, "Duplicated command '{}' => One will be randomly executed", command.getLabel());
-            }
-
-            labels.add(command.getLabel());
-        });
+        commandManager.compile();
 
         log.info("Registered {} commands", commandManager.getCommands().size());
 
@@ -355,25 +413,26 @@ public class KrobotRuntime
             Stream.of(m.getClass().getAnnotation(Include.class).consoleCommands()).forEach(console::register);
         });
 
-        log.info("Registered {} console commands", console.getCommands().size());
+        log.info("Registered {} console commands\n", console.getCommands().size());
 
-        log.infoBold("----> Done in " + timerGet() + "ms\n");
+        report.phase("commands", phaseStart);
 
         log.infoBold("----> 3/4 Starting JDA");
-        timerStart();
+
+        phaseStart = System.nanoTime();
 
         try
         {
-            jda = JDABuilder.createDefault(token)
-                .setEventManager(new AnnotatedEventManager())
-                .addEventListeners(this)
-                .setToken(token)
-                .build()
-                .awaitReady();
+            jda = gateway.get();
         }
-        catch (LoginException e)
+        catch (ExecutionException e)
         {
-            if (e.getCause() instanceof UnknownHostException)
+            if (!(e.getCause() instanceof LoginException))
+            {
+                throw new RuntimeException("Error while starting JDA", e.getCause());
+            }
+
+            if (e.getCause().getCause() instanceof UnknownHostException)
             {
                 log.error("You aren't connected to the Internet ! Exiting...");
             }
@@ -388,6 +447,13 @@ public class KrobotRuntime
         {
         }
 
+        report.setGatewayWait(System.nanoTime() - phaseStart);
+        report.phase("jda", gatewayStart, gatewayReady);
+
+        phaseStart = System.nanoTime();
+
+        prefixResolver.setSelfId(jda.getSelfUser().getId());
+
         modules.forEach(m -> {
             m.getModule().getEventListeners().forEach(jda::addEventListener);
 
@@ -395,23 +461,31 @@ public class KrobotRuntime
 
             if (moduleClass.isAnnotationPresent(Include.class))
             {
-                Object[] listeners = Stream.of(moduleClass.getAnnotation(Include.class).listeners()).map(m.getModule().injector()::getInstance).toArray();
+                Object[] listeners = Stream.of(moduleClass.getAnnotation(Include.class).listeners()).map(c -> m.getModule().injector().getInstance(c)).toArray();
                 jda.addEventListener(listeners);
             }
         });
 
-        log.infoBold("----> Done in " + timerGet() + "ms\n");
+        report.phase("listeners", phaseStart);
+
+        log.info("Connected as {}\n", jda.getSelfUser().getAsTag());
 
         log.infoBold("----> 4/4 Post-Initialization");
-        timerStart();
 
-        modules.stream().map(ComputedModule::getModule).forEach(module ->
+        phaseStart = System.nanoTime();
+        StartupPhase postInit = scheduler.run("Post-Initialization", true, source ->
         {
-            log.info("({}) Post-Initialization...", module.getClass().getName());
+            log.info("({}) Post-Initialization...", source.getModule().getClass().getName());
 
-            module.postInit();
+            source.getModule().postInit();
         });
 
+        scheduler.shutdown();
+
+        report.phase("postInit", phaseStart, postInit);
+
+        log.info("Modules post-initialized");
+
         if (System.console() == null)
         {
             if (System.getProperty(Krobot.PROPERTY_DISABLE_STATE_BAR) == null)
@@ -425,9 +499,21 @@ public class KrobotRuntime
             Logger.getLogger("org.jline").setLevel(Level.OFF);
         }
 
-        this.threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(maxThread);
+        // Filters may have been added after the filter runner creation
+        filterRunner.compile();
+        prefixResolver.compileFilters();
 
-        log.infoBold("----> Done in " + timerGet() + "ms\n");
+        IngressQueue ingress = createIngress();
+
+        this.ordering = createOrdering();
+        this.executor = createExecutor();
+        this.orderedExecutor = createOrderedExecutor();
+        this.handlerExecutor = createHandlerExecutor(ingress.getCapacity());
+
+        // Last, as received messages are ignored until it is set
+        this.ingress = ingress;
+
+        writeReport();
 
         log.infoAuto("@|green Now running|@ @|bold,green {} v{} by {}|@ @|green [{}] (started in|@ @|bold,green {}ms|@@|green )|@", bot.name(), bot.version(), bot.author(), botClass.getName(), System.currentTimeMillis() - startTime);
         log.infoAuto("@|green Press any key to enter a command, do '|@@|bold,green exit|@@|green ' to close|@\n");
@@ -448,6 +534,144 @@ public class KrobotRuntime
         uptime = System.currentTimeMillis();
     }
 
+    /**
+     * Start connecting to Discord in background, the returned future
+     * completes once JDA is ready (guilds loaded). Messages received before
+     * the end of the startup are ignored.
+     */
+    private CompletableFuture<JDA> connect()
+    {
+        CompletableFuture<JDA> ready = new CompletableFuture<>();
+        gatewayStart = System.nanoTime();
+
+        Thread thread = new Thread(() -> {
+            try
+            {
+                JDABuilder builder = JDABuilder.createDefault(token)
+                                               .setEventManager(new AnnotatedEventManager())
+                                               .addEventListeners(this)
+                                               .setToken(token);
+
+                String standIn = System.getProperty(Krobot.PROPERTY_GATEWAY);
+
+                if (standIn != null)
+                {
+                    useStandIn(builder, standIn);
+                }
+
+                JDA jda = builder.build().awaitReady();
+
+                gatewayReady = System.nanoTime();
+                ready.complete(jda);
+            }
+            catch (Throwable t)
+            {
+                ready.completeExceptionally(t);
+            }
+        }, "Gateway Login");
+
+        thread.setDaemon(true);
+        thread.start();
+
+        return ready;
+    }
+
+    /**
+     * Send every request of JDA to a local stand-in of the Discord API, like
+     * the one of the training boots (see the 'training' artifact). The
+     * gateway address is given by the stand-in itself. The requests carry
+     * the bot token in clear, so the stand-in must be on a loopback address.
+     *
+     * @param builder The JDA builder
+     * @param address The address of the stand-in, as 'host:port'
+     */
+    private static void useStandIn(JDABuilder builder, String address)
+    {
+        int separator = address.lastIndexOf(':');
+
+        if (separator == -1)
+        {
+            throw new IllegalArgumentException("Invalid stand-in gateway address '" + address + "', expected 'host:port'");
+        }
+
+        String host = address.substring(0, separator);
+        int port = Integer.parseInt(address.substring(separator + 1));
+
+        try
+        {
+            if (!InetAddress.getByName(host).isLoopbackAddress())
+            {
+                throw new IllegalArgumentException("The stand-in gateway must be on a loopback address, not '" + host + "'");
+            }
+        }
+        catch (UnknownHostException e)
+        {
+            throw new IllegalArgumentException("Unknown stand-in gateway host '" + host + "'", e);
+        }
+
+        log.warn(Color.YELLOW, "Using the stand-in gateway at {}, no real Discord connection will be made", address);
+
+        builder.setCompression(Compression.NONE)
+               .setHttpClientBuilder(new OkHttpClient.Builder().addInterceptor(chain -> {
+                   HttpUrl url = chain.request().url().newBuilder().scheme("http").host(host).port(port).build();
+                   return chain.proceed(chain.request().newBuilder().url(url).build());
+               }));
+    }
+
+    private Injector createChildInjector(RuntimeModule module)
+    {
+        long start = System.nanoTime();
+        Injector child = injector.createChildInjector(new ModuleModule(module));
+
+        // Injectors are created lazily, only the ones created during the startup are reported
+        report.module("injector", module.getComputed().getModule().getClass(), System.nanoTime() - start);
+
+        return child;
+    }
+
+    private void writeReport()
+    {
+        File file = new File(System.getProperty(Krobot.PROPERTY_STARTUP_REPORT, DEFAULT_STARTUP_REPORT));
+
+        try
+        {
+            report.write(file);
+            log.info("Startup report written in {}\n", file.getPath());
+        }
+        catch (IOException e)
+        {
+            log.warn("Can't write the startup report in " + file.getPath(), e);
+        }
+    }
+
+    /**
+     * Stop the JDA connected in background, if the startup failed before using it
+     */
+    private void abort()
+    {
+        if (gateway != null)
+        {
+            gateway.thenAccept(JDA::shutdownNow);
+        }
+    }
+
+    /**
+     * @return If the given class has fields or methods to inject, so creating
+     *         the injector of a module can be skipped when it has none
+     */
+    private static boolean hasInjectionPoints(Class<?> type)
+    {
+        try
+        {
+            return !InjectionPoint.forInstanceMethodsAndFields(type).isEmpty();
+        }
+        catch (ConfigurationException e)
+        {
+            // Invalid injection points, the injector will report them
+            return true;
+        }
+    }
+
     protected void addCommand(KrobotModule source, KrobotCommand command)
     {
         command.getFilters().add((call, context, args) -> {
@@ -462,6 +686,13 @@ public class KrobotRuntime
 
     protected KrobotCommand registerCommandClass(KrobotModule module, Class<? extends CommandHandler> commandClass)
     {
+        CommandDescriptor descriptor = CommandManager.getDescriptor(commandClass);
+
+        if (descriptor != null)
+        {
+            return registerCommandClass(module, commandClass, descriptor);
+        }
+
         if (!commandClass.isAnnotationPresent(Command.class))
         {
             log.error(Color.RED, "Class '{}' declared in @Include#commands is missing @Command annotation", commandClass.getName());
@@ -483,12 +714,36 @@ public class KrobotRuntime
             System.exit(1);
         }
 
-        Injector injector = module.injector();
-
-        List<CommandFilter> filters = Stream.of(command.filters()).map(injector::getInstance).collect(Collectors.toList());
+        List<CommandFilter> filters = Stream.of(command.filters()).map(c -> module.injector().getInstance(c)).collect(Collectors.toList());
         List<KrobotCommand> subs = Stream.of(command.subs()).map(c -> registerCommandClass(module, c)).collect(Collectors.toList());
 
-        return new KrobotCommand(compiler.label(), compiler.args(), command.desc(), command.aliases(), command.errorMP(), command.handleMP(), filters, injector.getInstance(commandClass), subs);
+        return new KrobotCommand(compiler.label(), compiler.args(), command.desc(), command.aliases(), command.errorMP(), command.handleMP(), filters, commandClass, () -> module.injector().getInstance(commandClass), subs);
+    }
+
+    /**
+     * Create a command from its descriptor generated at compile time, its
+     * path was already validated and parsed by the annotation processor
+     */
+    protected KrobotCommand registerCommandClass(KrobotModule module, Class<? extends CommandHandler> commandClass, CommandDescriptor descriptor)
+    {
+        CommandArgument[] arguments = null;
+
+        try
+        {
+            arguments = descriptor.createArguments();
+        }
+        catch (IllegalStateException e)
+        {
+            log.error(Color.RED, "{} (command {})", e.getMessage(), commandClass.getName());
+            log.errorBold(Color.WHITE, "Aborting due to command path compilation error");
+
+            System.exit(1);
+        }
+
+        List<CommandFilter> filters = Stream.of(descriptor.getFilters()).map(c -> module.injector().getInstance(c)).collect(Collectors.toList());
+        List<KrobotCommand> subs = Stream.of(descriptor.getSubs()).map(c -> registerCommandClass(module, c)).collect(Collectors.toList());
+
+        return new KrobotCommand(descriptor.getLabel(), arguments, descriptor.getDescription(), descriptor.getAliases(), descriptor.isErrorMP(), descriptor.isHandleMP(), filters, commandClass, () -> module.injector().getInstance(commandClass), subs);
     }
 
     @SubscribeEvent
@@ -496,36 +751,118 @@ public class KrobotRuntime
     {
         if (event.getAuthor() instanceof SelfUser) return;
 
-        MessageChannel channel;
-        if (event.isFromType(ChannelType.TEXT)) channel = event.getChannel();
-        else if (event.isFromType(ChannelType.PRIVATE)) channel = event.getAuthor().openPrivateChannel().complete();
-        else return;
+        if (!event.isFromType(ChannelType.TEXT) && !event.isFromType(ChannelType.PRIVATE)) return;
+
+        if (ingress == null) return;
+
+        // Fast path: nothing is allocated for messages nobody needs
+        boolean command = prefixResolver.mayMatch(event.getMessage().getContentRaw());
 
-        final MessageContext context = new MessageContext(event.getJDA(), event.getAuthor(), event.getMessage(), channel);
-        handle(context);
+        if (!command && !filterRunner.hasHandlers()) return;
+
+        final MessageContext context = new MessageContext(event.getJDA(), event.getAuthor(), event.getMessage(), event.getChannel());
+        handle(context, command);
     }
 
-    protected void handle(MessageContext context)
+    /**
+     * Handle a received message: messages that may be commands go to the
+     * command executor, the others only go to the filter handlers
+     *
+     * @param context The context of the message
+     * @param command If the message may be a command
+     */
+    protected void handle(MessageContext context, boolean command)
     {
-        if (threadPool == null)
+        IngressQueue.Entry entry = ingress.offer(context, command);
+
+        if (entry == null)
         {
             return;
         }
 
-        threadPool.submit(() -> {
-            long time = System.currentTimeMillis();
+        inFlight.incrementAndGet();
 
-            try
+        try
+        {
+            if (!command)
+            {
+                handlerExecutor.execute(() -> runHandlers(entry));
+            }
+            else if (orderedExecutor != null)
+            {
+                if (!orderedExecutor.submit(ordering.keyOf(context), () -> start(entry)))
+                {
+                    ingress.reject(entry);
+                    inFlight.decrementAndGet();
+                }
+            }
+            else
+            {
+                executor.execute(() -> start(entry));
+            }
+        }
+        catch (RejectedExecutionException e)
+        {
+            ingress.cancel(entry);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private CompletableFuture<Void> start(IngressQueue.Entry entry)
+    {
+        if (!ingress.start(entry))
+        {
+            inFlight.decrementAndGet();
+            return null;
+        }
+
+        return process(entry.getContext());
+    }
+
+    private void runHandlers(IngressQueue.Entry entry)
+    {
+        try
+        {
+            if (ingress.start(entry))
             {
-                filterRunner.runFilters(context);
-                commandManager.handle(context);
+                filterRunner.runFilters(entry.getContext());
             }
-            catch (Exception e)
+        }
+        catch (Exception e)
+        {
+            log.error("Error while running filter handlers", e);
+        }
+        finally
+        {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    protected CompletableFuture<Void> process(MessageContext context)
+    {
+        long time = System.currentTimeMillis();
+        CompletableFuture<Void> result;
+
+        try
+        {
+            filterRunner.runFilters(context);
+            result = commandManager.handle(context);
+        }
+        catch (Throwable t)
+        {
+            // Errors too, the completion below must always release the message
+            result = new CompletableFuture<>();
+            result.completeExceptionally(t);
+        }
+
+        return result.whenComplete((ignored, t) -> {
+            if (t != null)
             {
-                log.error("Error while handling message", e);
+                log.error("Error while handling message", t);
             }
 
             setLastExecutionTime(System.currentTimeMillis() - time);
+            inFlight.decrementAndGet();
         });
     }
 
@@ -538,25 +875,179 @@ public class KrobotRuntime
             stateBar.interrupt();
         }
 
+        if (executor != null)
+        {
+            executor.shutdown();
+        }
+
+        if (handlerExecutor != null)
+        {
+            handlerExecutor.shutdown();
+        }
+
+        try
+        {
+            // Letting running commands finish their config changes
+            if (executor != null)
+            {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        }
+        catch (InterruptedException ignored)
+        {
+        }
+
+        if (configWatcher != null)
+        {
+            configWatcher.close();
+        }
+
+        ConfigFlusher.flushAll();
+
         jda.shutdown();
     }
 
-    public ExceptionHandler getExceptionHandler()
+    /**
+     * Its queue stays unbounded: the continuations of the command pipelines
+     * run on it (see {@link #getExecutor()}), and a rejected one would never
+     * complete its command. The messages are bounded by the ingress queue.
+     */
+    private ExecutorService createExecutor()
     {
-        return injector.getInstance(ExceptionHandler.class);
+        String mode = System.getProperty(Krobot.PROPERTY_EXECUTION_MODE);
+        executionMode = mode != null && mode.equalsIgnoreCase("virtual") ? ExecutionMode.VIRTUAL : ExecutionMode.PLATFORM;
+
+        if (executionMode == ExecutionMode.VIRTUAL)
+        {
+            try
+            {
+                // Looked up reflectively, the framework still targets Java 8
+                ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                log.info("Handling messages using virtual threads");
+
+                return executor;
+            }
+            catch (ReflectiveOperationException | RuntimeException e)
+            {
+                log.warn(Color.YELLOW, "Virtual threads aren't supported by this JVM (Java 21+ is required), falling back to a pool of {} threads", maxThread);
+                executionMode = ExecutionMode.PLATFORM;
+            }
+        }
+
+        return Executors.newFixedThreadPool(maxThread);
     }
 
-    public RuntimeModule getRuntimeModule(Class<? extends KrobotModule> moduleClass)
+    /**
+     * Create a thread pool rejecting the tasks once the given number of
+     * tasks are waiting, so messages shed by the ingress queue can't pile up
+     * in it
+     */
+    private static ExecutorService createBoundedPool(int threads, int capacity)
     {
-        for (RuntimeModule module : modules)
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity));
+    }
+
+    private MessageOrdering createOrdering()
+    {
+        String order = System.getProperty(Krobot.PROPERTY_ORDERING);
+
+        if (order != null)
         {
-            if (module.getComputed().getModule().getClass() == moduleClass)
+            try
             {
-                return module;
+                return MessageOrdering.valueOf(order.toUpperCase());
             }
+            catch (IllegalArgumentException e)
+            {
+                log.warn(Color.YELLOW, "Unknown message ordering '{}', messages won't be ordered", order);
+            }
+        }
+
+        return MessageOrdering.NONE;
+    }
+
+    private KeyedExecutor createOrderedExecutor()
+    {
+        if (ordering == MessageOrdering.NONE)
+        {
+            return null;
         }
 
-        return null;
+        int queueCap = (int) longProperty(Krobot.PROPERTY_ORDERING_QUEUE_CAP, DEFAULT_ORDERING_QUEUE_CAP);
+
+        return new KeyedExecutor(executor, Math.max(1, queueCap));
+    }
+
+    private IngressQueue createIngress()
+    {
+        String value = System.getProperty(Krobot.PROPERTY_OVERFLOW_POLICY);
+        OverflowPolicy policy = OverflowPolicy.DROP_OLDEST;
+
+        if (value != null)
+        {
+            try
+            {
+                policy = OverflowPolicy.valueOf(value.toUpperCase());
+            }
+            catch (IllegalArgumentException e)
+            {
+                log.warn(Color.YELLOW, "Unknown overflow policy '{}', using {}", value, policy);
+            }
+        }
+
+        int capacity = (int) longProperty(Krobot.PROPERTY_INGRESS_CAPACITY, DEFAULT_INGRESS_CAPACITY);
+        long maxAge = longProperty(Krobot.PROPERTY_MAX_QUEUE_AGE, DEFAULT_MAX_QUEUE_AGE);
+
+        return new IngressQueue(policy, Math.max(1, capacity), Math.max(0, maxAge));
+    }
+
+    /**
+     * @param capacity The capacity of the ingress queue, bounding the tasks waiting for a thread
+     */
+    private ExecutorService createHandlerExecutor(int capacity)
+    {
+        if (executionMode == ExecutionMode.VIRTUAL)
+        {
+            try
+            {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            }
+            catch (ReflectiveOperationException | RuntimeException ignored)
+            {
+            }
+        }
+
+        return createBoundedPool(Math.max(2, maxThread / 4), capacity);
+    }
+
+    private long longProperty(String property, long def)
+    {
+        String value = System.getProperty(property);
+
+        if (value == null)
+        {
+            return def;
+        }
+
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            log.warn(Color.YELLOW, "Invalid value '{}' for {}, using {}", value, property, def);
+            return def;
+        }
+    }
+
+    public ExceptionHandler getExceptionHandler()
+    {
+        return injector.getInstance(ExceptionHandler.class);
+    }
+
+    public RuntimeModule getRuntimeModule(Class<? extends KrobotModule> moduleClass)
+    {
+        return runtimeModules.get(moduleClass);
     }
 
     public boolean isRootModule(KrobotModule module)
@@ -579,9 +1070,73 @@ public class KrobotRuntime
         return bot;
     }
 
+    /**
+     * @return The executor handling the received messages
+     */
+    public ExecutorService getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * @return The thread pool handling the received messages, or null if using virtual threads
+     */
     public ThreadPoolExecutor getThreadPool()
     {
-        return threadPool;
+        return executor instanceof ThreadPoolExecutor ? (ThreadPoolExecutor) executor : null;
+    }
+
+    public ExecutionMode getExecutionMode()
+    {
+        return executionMode;
+    }
+
+    /**
+     * @return The number of messages being handled, including the ones waiting
+     *         for a thread or for Discord
+     */
+    public int getInFlightTasks()
+    {
+        return inFlight.get();
+    }
+
+    public MessageOrdering getOrdering()
+    {
+        return ordering;
+    }
+
+    /**
+     * @return The queue of the received messages waiting to be handled
+     */
+    public IngressQueue getIngress()
+    {
+        return ingress;
+    }
+
+    public int getMaxThread()
+    {
+        return maxThread;
+    }
+
+    public PrefixResolver getPrefixResolver()
+    {
+        return prefixResolver;
+    }
+
+    /**
+     * @return The modules disabled per guild at runtime
+     */
+    public GuildModules getGuildModules()
+    {
+        return guildModules;
+    }
+
+    /**
+     * @return The watcher reloading the configs when they are edited, or null if disabled
+     */
+    public ConfigWatcher getConfigWatcher()
+    {
+        return configWatcher;
     }
 
     public FilterRunner getFilterRunner()
@@ -634,16 +1189,6 @@ public class KrobotRuntime
         this.lastExecutionTime = lastExecutionTime;
     }
 
-    private void timerStart()
-    {
-        time = System.currentTimeMillis();
-    }
-
-    private long timerGet()
-    {
-        return System.currentTimeMillis() - time;
-    }
-
     public static KrobotRuntime start(Class<? extends KrobotModule> bot, String key)
     {
         if (current != null)
@@ -656,7 +1201,16 @@ public class KrobotRuntime
         }
 
         current = new KrobotRuntime(bot, key);
-        current.launch();
+
+        try
+        {
+            current.launch();
+        }
+        catch (RuntimeException | Error e)
+        {
+            current.abort();
+            throw e;
+        }
 
         return current;
     }
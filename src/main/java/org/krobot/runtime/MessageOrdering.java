@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import net.dv8tion.jda.api.entities.Guild;
+import org.krobot.MessageContext;
+
+/**
+ * Which received messages are handled in order, one after the other
+ * (see {@link org.krobot.Krobot#PROPERTY_ORDERING}).<br><br>
+ *
+ * An ordered message waits for the whole handling of the previous ones,
+ * replies included, so a slow command delays its channel (or guild). At
+ * most {@link org.krobot.Krobot#PROPERTY_ORDERING_QUEUE_CAP} messages wait
+ * per channel (or guild), the next ones are shed like an overflow of the
+ * ingress queue.
+ */
+public enum MessageOrdering
+{
+    /**
+     * Messages of a same channel are handled in the order they were received
+     */
+    CHANNEL,
+
+    /**
+     * Messages of a same guild are handled in the order they were received
+     * (private messages are ordered per channel)
+     */
+    GUILD,
+
+    /**
+     * Messages are handled concurrently, without any ordering (the default)
+     */
+    NONE;
+
+    /**
+     * @param context The context of a message
+     *
+     * @return The ID of the channel or the guild the message is ordered by
+     */
+    public long keyOf(MessageContext context)
+    {
+        if (this == GUILD)
+        {
+            Guild guild = context.getGuild();
+
+            if (guild != null)
+            {
+                return guild.getIdLong();
+            }
+        }
+
+        return context.getChannel().getIdLong();
+    }
+}
@@ -18,8 +18,15 @@
  */
 package org.krobot.runtime;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -32,6 +39,7 @@ import org.krobot.module.FilterRules;
 import org.krobot.module.ImportRules.ConfigBridge;
 import org.krobot.module.ImportRules.Includes;
 import org.krobot.module.Include;
+import org.krobot.module.LoadModule;
 import org.krobot.module.ParentCommand;
 import org.krobot.util.ColoredLogger;
 
@@ -40,25 +48,21 @@ public class ModuleLoader
     private static final ColoredLogger log = ColoredLogger.getLogger("ModuleLoader");
 
     private List<ComputedModule> modules;
+    private Map<Class<? extends KrobotModule>, ComputedModule> byClass;
+    private Map<ComputedModule, Long> preInitDurations;
 
     public ModuleLoader()
     {
         this.modules = new ArrayList<>();
+        this.byClass = new HashMap<>();
+        this.preInitDurations = new LinkedHashMap<>();
     }
 
     public ComputedModule load(Class<? extends KrobotModule> moduleClass)
     {
         log.info("(" + moduleClass.getName() + ") Pre-initialization...");
 
-        ComputedModule module = null;
-
-        for (ComputedModule computed : modules)
-        {
-            if (computed.getModule().getClass() == moduleClass)
-            {
-                module = computed;
-            }
-        }
+        ComputedModule module = byClass.get(moduleClass);
 
         if (module != null)
         {
@@ -77,8 +81,9 @@ public class ModuleLoader
             System.exit(1);
         }
 
-        module = new ComputedModule(instance);
+        module = new ComputedModule(instance, modules.size());
         modules.add(module);
+        byClass.put(moduleClass, module);
 
         importFromAnnotation(module);
         preInit(module);
@@ -95,12 +100,14 @@ public class ModuleLoader
             return;
         }
 
-        Stream.of(include.imports()).forEach(this::load);
+        Stream.of(include.imports()).forEach(imported -> module.getDependencies().add(load(imported)));
     }
 
     public void preInit(ComputedModule module)
     {
+        long start = System.nanoTime();
         module.getModule().preInit();
+        preInitDurations.put(module, System.nanoTime() - start);
 
         // Importing everything
 
@@ -108,6 +115,7 @@ public class ModuleLoader
 
         module.getModule().getImports().forEach(rules -> {
             ComputedModule loaded = load(rules.getModule());
+            module.getDependencies().add(loaded);
 
             List<Pair<ConfigBridge, KrobotModule>> bridges = new ArrayList<>();
             rules.getBridges().forEach(bridge -> bridges.add(new ImmutablePair<>(bridge, module.getModule())));
@@ -155,6 +163,93 @@ public class ModuleLoader
         });
     }
 
+    /**
+     * Set the fields annotated with {@link LoadModule} of every loaded
+     * module, and add the modules they reference to its dependencies. Then
+     * breaks the dependency cycles, so the modules can be started in
+     * dependency order.
+     */
+    public void link()
+    {
+        for (ComputedModule module : modules)
+        {
+            KrobotModule instance = module.getModule();
+
+            for (Field field : instance.getClass().getDeclaredFields())
+            {
+                if (!field.isAnnotationPresent(LoadModule.class))
+                {
+                    continue;
+                }
+
+                ComputedModule loaded = byClass.get(field.getType());
+
+                if (loaded == null)
+                {
+                    throw new RuntimeException("Cannot load module " + field.getType().getName() + " as it isn't imported. @LoadModule annotation can't be used without @Include / from(...)");
+                }
+
+                field.setAccessible(true);
+
+                try
+                {
+                    field.set(instance, loaded.getModule());
+                }
+                catch (IllegalAccessException ignored)
+                {
+                }
+
+                field.setAccessible(false);
+
+                module.getDependencies().add(loaded);
+            }
+        }
+
+        Set<ComputedModule> visited = new HashSet<>();
+        Set<ComputedModule> visiting = new HashSet<>();
+
+        modules.forEach(module -> breakCycles(module, visited, visiting));
+    }
+
+    private void breakCycles(ComputedModule module, Set<ComputedModule> visited, Set<ComputedModule> visiting)
+    {
+        if (!visited.add(module))
+        {
+            return;
+        }
+
+        visiting.add(module);
+
+        // Copying, as it may be modified
+        for (ComputedModule dependency : new ArrayList<>(module.getDependencies()))
+        {
+            if (visiting.contains(dependency))
+            {
+                log.warn(Color.YELLOW, "Modules {} and {} depend on each other, {} will be started first", module.getModule().getClass().getName(), dependency.getModule().getClass().getName(), module.getModule().getClass().getName());
+                module.getDependencies().remove(dependency);
+
+                continue;
+            }
+
+            breakCycles(dependency, visited, visiting);
+        }
+
+        visiting.remove(module);
+    }
+
+    public ComputedModule getModule(Class<? extends KrobotModule> moduleClass)
+    {
+        return byClass.get(moduleClass);
+    }
+
+    /**
+     * @return The time the {@link KrobotModule#preInit()} of each module took, in nanoseconds
+     */
+    public Map<ComputedModule, Long> getPreInitDurations()
+    {
+        return preInitDurations;
+    }
+
     public List<ComputedModule> getModules()
     {
         return modules;
@@ -163,7 +258,9 @@ public class ModuleLoader
     public static class ComputedModule
     {
         private KrobotModule module;
+        private int index;
 
+        private Set<ComputedModule> dependencies;
         private List<FilterRules> filters;
         private List<ConfigRules> configs;
         private List<Pair<ConfigBridge, KrobotModule>> bridges;
@@ -171,10 +268,12 @@ public class ModuleLoader
 
         private Includes[] includes;
 
-        public ComputedModule(KrobotModule module)
+        public ComputedModule(KrobotModule module, int index)
         {
             this.module = module;
+            this.index = index;
 
+            this.dependencies = new LinkedHashSet<>();
             this.filters = new ArrayList<>();
             this.configs = new ArrayList<>();
             this.bridges = new ArrayList<>();
@@ -187,6 +286,22 @@ public class ModuleLoader
             return module;
         }
 
+        /**
+         * @return The position of the module in the load order
+         */
+        public int getIndex()
+        {
+            return index;
+        }
+
+        /**
+         * @return The modules imported or loaded by this one, which are started before it
+         */
+        public Set<ComputedModule> getDependencies()
+        {
+            return dependencies;
+        }
+
         public List<FilterRules> getFilters()
         {
             return filters;
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Consumer;
+
+import org.fusesource.jansi.Ansi.Color;
+import org.krobot.runtime.ModuleLoader.ComputedModule;
+import org.krobot.util.ColoredLogger;
+
+/**
+ * Runs the startup phases of the modules. A module is started once all
+ * of its dependencies (see {@link ComputedModule#getDependencies()}) are,
+ * so independent modules are started in parallel.<br><br>
+ *
+ * Errors don't depend on the scheduling: the modules depending on a
+ * failed one are skipped, and failures are reported in load order.
+ */
+public class ModuleScheduler
+{
+    private static final ColoredLogger log = ColoredLogger.getLogger("ModuleScheduler");
+
+    private final List<ComputedModule> modules;
+    private final List<ComputedModule> order;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param modules The modules, in load order
+     * @param parallelism The number of threads starting modules, 1 to start them one by one on the calling thread
+     */
+    public ModuleScheduler(List<ComputedModule> modules, int parallelism)
+    {
+        this.modules = modules;
+        this.order = new ArrayList<>(modules.size());
+
+        boolean[] added = new boolean[modules.size()];
+        modules.forEach(module -> sort(module, added));
+
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Module Startup #" + thread.getPoolIndex());
+
+            return thread;
+        }, null, false) : null;
+    }
+
+    private void sort(ComputedModule module, boolean[] added)
+    {
+        if (added[module.getIndex()])
+        {
+            return;
+        }
+
+        added[module.getIndex()] = true;
+
+        // Cycles were broken by the loader
+        module.getDependencies().forEach(dependency -> sort(dependency, added));
+        order.add(module);
+    }
+
+    /**
+     * Run a phase on every module
+     *
+     * @param name The name of the phase, for the logs
+     * @param ordered If the dependencies of a module must have finished this phase before it starts it
+     * @param task The phase
+     *
+     * @return The timings of the phase
+     *
+     * @throws ModuleStartupException If the phase failed for a module
+     */
+    public StartupPhase run(String name, boolean ordered, Consumer<ComputedModule> task)
+    {
+        int count = modules.size();
+
+        long[] durations = new long[count];
+        Throwable[] errors = new Throwable[count];
+        boolean[] skipped = new boolean[count];
+
+        long start = System.nanoTime();
+
+        if (pool == null)
+        {
+            order.forEach(module -> runModule(module, ordered, task, durations, errors, skipped));
+        }
+        else
+        {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+
+            // Dependencies come first in this order, so their futures already exist
+            for (ComputedModule module : order)
+            {
+                CompletableFuture<?>[] dependencies = ordered ? module.getDependencies().stream().map(dependency -> futures[dependency.getIndex()]).toArray(CompletableFuture<?>[]::new) : new CompletableFuture<?>[0];
+
+                futures[module.getIndex()] = CompletableFuture.allOf(dependencies).thenRunAsync(() -> runModule(module, ordered, task, durations, errors, skipped), pool);
+            }
+
+            CompletableFuture.allOf(futures).join();
+        }
+
+        StartupPhase phase = new StartupPhase(name, System.nanoTime() - start, modules, durations);
+        ModuleStartupException failure = null;
+
+        for (ComputedModule module : modules)
+        {
+            int index = module.getIndex();
+
+            if (skipped[index])
+            {
+                log.warn(Color.YELLOW, "({}) {} skipped, as one of its dependencies failed", module.getModule().getClass().getName(), name);
+            }
+
+            if (errors[index] == null)
+            {
+                continue;
+            }
+
+            log.errorAuto(Color.RED, "(" + module.getModule().getClass().getName() + ") " + name + " failed", errors[index]);
+
+            if (failure == null)
+            {
+                failure = new ModuleStartupException(name, module, errors[index]);
+            }
+            else
+            {
+                failure.addSuppressed(errors[index]);
+            }
+        }
+
+        if (failure != null)
+        {
+            throw failure;
+        }
+
+        return phase;
+    }
+
+    private void runModule(ComputedModule module, boolean ordered, Consumer<ComputedModule> task, long[] durations, Throwable[] errors, boolean[] skipped)
+    {
+        int index = module.getIndex();
+
+        if (ordered)
+        {
+            for (ComputedModule dependency : module.getDependencies())
+            {
+                if (errors[dependency.getIndex()] != null || skipped[dependency.getIndex()])
+                {
+                    skipped[index] = true;
+                    return;
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+
+        try
+        {
+            task.accept(module);
+        }
+        catch (Throwable t)
+        {
+            errors[index] = t;
+        }
+
+        durations[index] = System.nanoTime() - start;
+    }
+
+    /**
+     * Stop the startup threads, once every phase was run
+     */
+    public void shutdown()
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+        }
+    }
+
+    public static class ModuleStartupException extends RuntimeException
+    {
+        private final ComputedModule module;
+
+        public ModuleStartupException(String phase, ComputedModule module, Throwable cause)
+        {
+            super(phase + " failed for module " + module.getModule().getClass().getName(), cause);
+            this.module = module;
+        }
+
+        public ComputedModule getModule()
+        {
+            return module;
+        }
+    }
+}
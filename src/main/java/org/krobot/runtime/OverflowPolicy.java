@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+/**
+ * What to do with a received message when the ingress queue is full
+ * (see {@link org.krobot.Krobot#PROPERTY_OVERFLOW_POLICY}).
+ */
+public enum OverflowPolicy
+{
+    /**
+     * Drop the oldest queued message that doesn't look like a command,
+     * or the received one if there isn't any
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drop the received message, replying to it if it looks like a command
+     */
+    REPLY_BUSY,
+
+    /**
+     * Drop the oldest queued message of the guild having the most queued
+     * messages, or the received one if it is from this guild
+     */
+    SHED_GUILD
+}
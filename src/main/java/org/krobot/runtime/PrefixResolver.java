@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import net.dv8tion.jda.api.entities.Guild;
+import org.krobot.MessageContext;
+import org.krobot.util.LongMap;
+
+/**
+ * The Prefix Resolver<br><br>
+ *
+ *
+ * Finds the prefix of a message, trying every pattern the bot may use (the
+ * base prefix, the root filter prefixes, the per-guild prefixes and the
+ * two forms of the bot mention) in a single pass over the message, using
+ * the trie of the {@link CommandGate}.<br><br>
+ *
+ * Per-guild prefixes can be set at runtime using {@link #setPrefix(long, String)},
+ * they take precedence over the filters prefixes and the base prefix.<br>
+ * Reads never lock: the guild table and the gate are immutable and
+ * replaced on each change.
+ */
+public class PrefixResolver
+{
+    private final FilterRunner filterRunner;
+    private final String basePrefix;
+    private volatile String[] filterPrefixes;
+    private final boolean mentionDisabled;
+
+    private volatile String selfId;
+    private volatile LongMap<String> guildPrefixes;
+    private volatile CommandGate gate;
+
+    /**
+     * @param filterRunner The filter runner, used to resolve the filters prefixes
+     * @param basePrefix The prefix of the root module, null if commands don't need one
+     * @param mentionDisabled If the bot mention can't be used as a prefix
+     */
+    public PrefixResolver(FilterRunner filterRunner, String basePrefix, boolean mentionDisabled)
+    {
+        this.filterRunner = filterRunner;
+        this.basePrefix = basePrefix;
+        this.filterPrefixes = filterRunner.getFilterPrefixes();
+        this.mentionDisabled = mentionDisabled;
+
+        this.guildPrefixes = new LongMap<>();
+        this.gate = compile();
+    }
+
+    /**
+     * Read the filters prefixes again, must be called if filters setting a
+     * prefix were added after the construction of the resolver (and after
+     * {@link FilterRunner#compile()})
+     */
+    public synchronized void compileFilters()
+    {
+        this.filterPrefixes = filterRunner.getFilterPrefixes();
+        this.gate = compile();
+    }
+
+    /**
+     * Set the ID of the bot, enabling the mention patterns
+     *
+     * @param selfId The ID of the bot user
+     */
+    public synchronized void setSelfId(String selfId)
+    {
+        this.selfId = selfId;
+        this.gate = compile();
+    }
+
+    /**
+     * Set the prefix of a guild
+     *
+     * @param guildId The ID of the guild
+     * @param prefix Its prefix, or null to use the default one again
+     */
+    public synchronized void setPrefix(long guildId, String prefix)
+    {
+        LongMap<String> prefixes = guildPrefixes.copy();
+
+        if (prefix == null)
+        {
+            prefixes.remove(guildId);
+        }
+        else
+        {
+            prefixes.put(guildId, prefix);
+        }
+
+        this.guildPrefixes = prefixes;
+        this.gate = compile();
+    }
+
+    /**
+     * @param guildId The ID of a guild
+     *
+     * @return The prefix set for this guild, or null if it uses the default one
+     */
+    public String getPrefix(long guildId)
+    {
+        return guildPrefixes.get(guildId);
+    }
+
+    /**
+     * @param context The context of a message
+     *
+     * @return The prefix commands must have in the context, null if they don't need one
+     */
+    public String getPrefix(MessageContext context)
+    {
+        Guild guild = context.getGuild();
+
+        if (guild != null)
+        {
+            String prefix = guildPrefixes.get(guild.getIdLong());
+
+            if (prefix != null)
+            {
+                return prefix;
+            }
+        }
+
+        if (filterPrefixes.length > 0)
+        {
+            String prefix = filterRunner.getFilterPrefix(context);
+
+            if (prefix != null)
+            {
+                return prefix;
+            }
+        }
+
+        return basePrefix;
+    }
+
+    /**
+     * Cheap check, without any allocation: if the message starts with any
+     * of the patterns, whatever its guild is
+     *
+     * @param content The raw content of a message
+     *
+     * @return If the message may be a command
+     */
+    public boolean mayMatch(String content)
+    {
+        return basePrefix == null || gate.matches(content);
+    }
+
+    /**
+     * Find the prefix of a message
+     *
+     * @param context The context of the message
+     * @param content The content of the message
+     * @param start Where to start looking for it in the content
+     *
+     * @return The found prefix, or null if the message isn't a command
+     */
+    public Match match(MessageContext context, String content, int start)
+    {
+        String expected = getPrefix(context);
+
+        CommandGate.Node node = gate.getRoot();
+        int i = CommandGate.skipWhitespaces(content, start);
+        Match found = expected == null ? new Match(null, i, false) : null;
+
+        while (i < content.length() && (node = node.child(content.charAt(i))) != null)
+        {
+            i++;
+
+            if (node.getPattern() == null)
+            {
+                continue;
+            }
+
+            if (node.isMention())
+            {
+                // Mention must be followed by the command
+                if (i < content.length() && Character.isWhitespace(content.charAt(i)))
+                {
+                    found = new Match(node.getPattern(), i, true);
+                }
+            }
+            else if (node.getPattern().equals(expected))
+            {
+                found = new Match(node.getPattern(), i, false);
+            }
+        }
+
+        if (found == null && "".equals(expected))
+        {
+            found = new Match(expected, CommandGate.skipWhitespaces(content, start), false);
+        }
+
+        return found;
+    }
+
+    private CommandGate compile()
+    {
+        Set<String> prefixes = new LinkedHashSet<>();
+
+        if (basePrefix != null)
+        {
+            prefixes.add(basePrefix);
+        }
+
+        prefixes.addAll(Arrays.asList(filterPrefixes));
+
+        guildPrefixes.forEach((id, prefix) -> prefixes.add(prefix));
+
+        return new CommandGate(prefixes, mentionDisabled ? null : selfId);
+    }
+
+    /**
+     * A found prefix
+     */
+    public static class Match
+    {
+        private final String prefix;
+        private final int end;
+        private final boolean mention;
+
+        Match(String prefix, int end, boolean mention)
+        {
+            this.prefix = prefix;
+            this.end = end;
+            this.mention = mention;
+        }
+
+        /**
+         * @return The found prefix, null if commands don't need one
+         */
+        public String getPrefix()
+        {
+            return prefix;
+        }
+
+        /**
+         * @return Where the command starts in the content
+         */
+        public int getEnd()
+        {
+            return end;
+        }
+
+        /**
+         * @return If the prefix is a mention of the bot
+         */
+        public boolean isMention()
+        {
+            return mention;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.PrivateChannel;
+import net.dv8tion.jda.api.entities.Role;
+import org.krobot.MessageContext;
+import org.krobot.module.FilterRules;
+import org.krobot.module.Scope;
+import org.krobot.module.Scope.Kind;
+import org.krobot.util.LongMap;
+
+/**
+ * The Scope Table<br><br>
+ *
+ *
+ * Decision table of the {@link Scope} filters: for each kind of scope, maps
+ * the IDs to the indices of the filters containing them.<br>
+ * Deciding every scope filter for a message is then one lookup per ID of
+ * the message (guild, channel, category and member roles), other filters
+ * keep being called one by one.
+ */
+public class ScopeTable
+{
+    private static final int[] NONE = new int[0];
+
+    private final boolean[] scoped;
+    private final int[] indices;
+    private final Map<Kind, LongMap<int[]>> tables;
+    private final int[] privateFilters;
+
+    /**
+     * @param filters Every filter, in the order of their indices
+     */
+    public ScopeTable(FilterRules[] filters)
+    {
+        this.scoped = new boolean[filters.length];
+        this.tables = new EnumMap<>(Kind.class);
+
+        int[] indices = new int[filters.length];
+        int[] privateFilters = new int[filters.length];
+        int count = 0;
+        int privateCount = 0;
+
+        for (int f = 0; f < filters.length; f++)
+        {
+            if (!(filters[f].getFilter() instanceof Scope))
+            {
+                continue;
+            }
+
+            Scope scope = (Scope) filters[f].getFilter();
+
+            scoped[f] = true;
+            indices[count++] = f;
+
+            if (scope.getKind() == Kind.PRIVATE)
+            {
+                privateFilters[privateCount++] = f;
+                continue;
+            }
+
+            LongMap<int[]> table = tables.computeIfAbsent(scope.getKind(), kind -> new LongMap<>());
+
+            for (long id : scope.getIds())
+            {
+                int[] previous = table.get(id);
+                int[] current = previous == null ? new int[1] : Arrays.copyOf(previous, previous.length + 1);
+                current[current.length - 1] = f;
+
+                table.put(id, current);
+            }
+        }
+
+        this.indices = Arrays.copyOf(indices, count);
+        this.privateFilters = Arrays.copyOf(privateFilters, privateCount);
+    }
+
+    /**
+     * @param filter The index of a filter
+     *
+     * @return If it is a scope, decided by this table
+     */
+    public boolean isScoped(int filter)
+    {
+        return scoped[filter];
+    }
+
+    /**
+     * Decide every scope filter for a message
+     *
+     * @param context The context of the message
+     * @param decisions Where to store the results
+     */
+    public void resolve(MessageContext context, FilterDecisions decisions)
+    {
+        if (context.getChannel() instanceof PrivateChannel)
+        {
+            match(privateFilters, decisions);
+        }
+
+        // As in Scope#filter, private channels go through the other lookups too: a channel scope can contain one
+        Guild guild = context.getGuild();
+
+        if (guild != null)
+        {
+            match(Kind.GUILD, guild.getIdLong(), decisions);
+        }
+
+        match(Kind.CHANNEL, context.getChannel().getIdLong(), decisions);
+
+        if (tables.containsKey(Kind.CATEGORY))
+        {
+            long category = Scope.categoryOf(context.getChannel());
+
+            if (category != 0)
+            {
+                match(Kind.CATEGORY, category, decisions);
+            }
+        }
+
+        Member member = tables.containsKey(Kind.ROLE) ? context.getMessage().getMember() : null;
+
+        if (member != null)
+        {
+            for (Role role : member.getRoles())
+            {
+                match(Kind.ROLE, role.getIdLong(), decisions);
+            }
+        }
+
+        // Everything that wasn't found doesn't match
+        for (int f : indices)
+        {
+            decisions.setFilter(f, false);
+        }
+    }
+
+    private void match(Kind kind, long id, FilterDecisions decisions)
+    {
+        LongMap<int[]> table = tables.get(kind);
+
+        if (table != null)
+        {
+            int[] filters = table.get(id);
+            match(filters == null ? NONE : filters, decisions);
+        }
+    }
+
+    private void match(int[] filters, FilterDecisions decisions)
+    {
+        for (int f : filters)
+        {
+            decisions.setFilter(f, true);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.krobot.runtime.ModuleLoader.ComputedModule;
+
+/**
+ * The timings of a startup phase run by the {@link ModuleScheduler}
+ */
+public class StartupPhase
+{
+    private final String name;
+    private final long duration;
+    private final Map<ComputedModule, Long> moduleDurations;
+
+    StartupPhase(String name, long duration, List<ComputedModule> modules, long[] durations)
+    {
+        this.name = name;
+        this.duration = duration;
+        this.moduleDurations = new LinkedHashMap<>();
+
+        modules.forEach(module -> moduleDurations.put(module, durations[module.getIndex()]));
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return The time the whole phase took, in nanoseconds
+     */
+    public long getDuration()
+    {
+        return duration;
+    }
+
+    /**
+     * @return The time the phase took for each module, in nanoseconds, in load order
+     */
+    public Map<ComputedModule, Long> getModuleDurations()
+    {
+        return moduleDurations;
+    }
+
+    /**
+     * @return The sum of the time the phase took for each module, in nanoseconds.
+     *         Compared to {@link #getDuration()}, it shows what running the modules in parallel saved.
+     */
+    public long getModuleTime()
+    {
+        return moduleDurations.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " in " + TimeUnit.NANOSECONDS.toMillis(duration) + "ms (" + TimeUnit.NANOSECONDS.toMillis(getModuleTime()) + "ms of module work)";
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.krobot.Bot;
+import org.krobot.KrobotModule;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The timings of the startup, per phase and per module, written as JSON at
+ * the end of it so startup regressions can be tracked.<br><br>
+ *
+ * Every time is in milliseconds, and phases starts are relative to the launch.
+ */
+public class StartupReport
+{
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private final transient long origin;
+
+    private final String bot;
+    private final String version;
+    private final String botClass;
+    private final long startedAt;
+    private double total;
+    private double gatewayWait;
+    private final List<Phase> phases;
+
+    public StartupReport(Bot bot, Class<? extends KrobotModule> botClass)
+    {
+        this.origin = System.nanoTime();
+
+        this.bot = bot.name();
+        this.version = bot.version();
+        this.botClass = botClass.getName();
+        this.startedAt = System.currentTimeMillis();
+        this.phases = new ArrayList<>();
+    }
+
+    /**
+     * Add a phase running from the given start to now
+     *
+     * @param name The name of the phase
+     * @param start When the phase started, from {@link System#nanoTime()}
+     */
+    public void phase(String name, long start)
+    {
+        phase(name, start, System.nanoTime());
+    }
+
+    /**
+     * Add a phase
+     *
+     * @param name The name of the phase
+     * @param start When the phase started, from {@link System#nanoTime()}
+     * @param end When the phase ended, from {@link System#nanoTime()}
+     */
+    public synchronized void phase(String name, long start, long end)
+    {
+        find(name).set(millis(start - origin), millis(end - start));
+    }
+
+    /**
+     * Add a phase run by the {@link ModuleScheduler}, with the time it took
+     * for each module
+     *
+     * @param name The name of the phase
+     * @param start When the phase started, from {@link System#nanoTime()}
+     * @param phase The module timings of the phase
+     */
+    public synchronized void phase(String name, long start, StartupPhase phase)
+    {
+        phase(name, start, start + phase.getDuration());
+        phase.getModuleDurations().forEach((module, duration) -> module(name, module.getModule().getClass(), duration));
+    }
+
+    /**
+     * Add the time a phase took for a module
+     *
+     * @param name The name of the phase
+     * @param module The module
+     * @param duration The time it took, in nanoseconds
+     */
+    public synchronized void module(String name, Class<? extends KrobotModule> module, long duration)
+    {
+        find(name).modules.put(module.getName(), millis(duration));
+    }
+
+    /**
+     * @param gatewayWait The time the startup was blocked waiting for JDA to be ready, in nanoseconds
+     */
+    public synchronized void setGatewayWait(long gatewayWait)
+    {
+        this.gatewayWait = millis(gatewayWait);
+    }
+
+    /**
+     * Set the total startup time to now, then write the report
+     *
+     * @param file The file to write the report in
+     *
+     * @throws IOException If writing the file failed
+     */
+    public synchronized void write(File file) throws IOException
+    {
+        this.total = millis(System.nanoTime() - origin);
+
+        File parent = file.getAbsoluteFile().getParentFile();
+
+        if (parent != null)
+        {
+            Files.createDirectories(parent.toPath());
+        }
+
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+        {
+            gson.toJson(this, writer);
+        }
+    }
+
+    public synchronized double getTotal()
+    {
+        return total;
+    }
+
+    private Phase find(String name)
+    {
+        for (Phase phase : phases)
+        {
+            if (phase.name.equals(name))
+            {
+                return phase;
+            }
+        }
+
+        Phase phase = new Phase(name);
+        phases.add(phase);
+
+        return phase;
+    }
+
+    private static double millis(long nanos)
+    {
+        // Microsecond precision is enough, and keeps the report readable
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    private static class Phase
+    {
+        private final String name;
+        private double start;
+        private double duration;
+        private final Map<String, Double> modules;
+
+        Phase(String name)
+        {
+            this.name = name;
+            this.modules = new LinkedHashMap<>();
+        }
+
+        void set(double start, double duration)
+        {
+            this.start = start;
+            this.duration = duration;
+        }
+    }
+}
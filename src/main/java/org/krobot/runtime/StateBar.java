@@ -76,10 +76,24 @@ public class StateBar extends Thread
         long ping = runtime.jda().getGatewayPing();
         result += "@|bold Ping : |@@|bold," + colored(ping, 175, 450) + " " + ping + "|@@|bold ms | |@";
 
-        // Threads
-        int active = runtime.getThreadPool().getActiveCount();
-        int max = runtime.getThreadPool().getMaximumPoolSize();
-        result += "@|bold," + colored(active, max / 3,max - max / 4) + " " + active + "|@@|bold /" + max + " execution threads |@";
+        // In-flight tasks
+        int inFlight = runtime.getInFlightTasks();
+        int max = runtime.getMaxThread();
+
+        if (runtime.getExecutionMode() == ExecutionMode.VIRTUAL)
+        {
+            result += "@|bold," + colored(inFlight, max * 4, max * 40) + " " + inFlight + "|@@|bold  in-flight tasks (virtual threads) |@";
+        }
+        else
+        {
+            result += "@|bold," + colored(inFlight, max / 3, max - max / 4) + " " + inFlight + "|@@|bold  in-flight tasks /" + max + " threads |@";
+        }
+
+        // Ingress queue
+        IngressQueue ingress = runtime.getIngress();
+        int queued = ingress.getQueued();
+        int capacity = ingress.getCapacity();
+        result += "@|bold | queue : |@@|bold," + colored(queued, capacity / 4, capacity / 2) + " " + queued + "|@@|bold  (shed " + ingress.getShed() + ", expired " + ingress.getExpired() + ") |@";
 
         // Execution time
         long lastExec = runtime.getLastExecutionTime();
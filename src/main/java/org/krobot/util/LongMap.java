@@ -0,0 +1,309 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.util;
+
+import java.util.Arrays;
+
+/**
+ * Long Map<br><br>
+ *
+ *
+ * A map from primitive long keys (snowflake IDs) to values, using open
+ * addressing so neither the keys nor the entries are boxed.<br>
+ * It is not thread safe, concurrent readers should share a {@link #copy()}
+ * that isn't modified anymore.
+ *
+ * @param <V> The type of the values
+ */
+public final class LongMap<V>
+{
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    private boolean hasZero;
+    private Object zeroValue;
+
+    public LongMap()
+    {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expected The expected number of entries
+     */
+    public LongMap(int expected)
+    {
+        int capacity = MIN_CAPACITY;
+
+        while (capacity * 3 / 4 < expected)
+        {
+            capacity <<= 1;
+        }
+
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    /**
+     * @param key A key
+     *
+     * @return The value of this key, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        if (key == 0)
+        {
+            return (V) zeroValue;
+        }
+
+        int mask = keys.length - 1;
+
+        for (int i = index(key, mask); keys[i] != 0; i = (i + 1) & mask)
+        {
+            if (keys[i] == key)
+            {
+                return (V) values[i];
+            }
+        }
+
+        return null;
+    }
+
+    public boolean containsKey(long key)
+    {
+        if (key == 0)
+        {
+            return hasZero;
+        }
+
+        return get(key) != null;
+    }
+
+    /**
+     * @param key A key
+     * @param value Its value (not null)
+     *
+     * @return The previous value of this key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("LongMap values can't be null, use remove() instead");
+        }
+
+        if (key == 0)
+        {
+            V previous = (V) zeroValue;
+
+            if (!hasZero)
+            {
+                hasZero = true;
+                size++;
+            }
+
+            zeroValue = value;
+            return previous;
+        }
+
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+
+        for (; keys[i] != 0; i = (i + 1) & mask)
+        {
+            if (keys[i] == key)
+            {
+                V previous = (V) values[i];
+                values[i] = value;
+
+                return previous;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        if (++size > keys.length * 3 / 4)
+        {
+            resize(keys.length << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * @param key A key
+     *
+     * @return The removed value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        if (key == 0)
+        {
+            V previous = (V) zeroValue;
+
+            if (hasZero)
+            {
+                hasZero = false;
+                zeroValue = null;
+                size--;
+            }
+
+            return previous;
+        }
+
+        int mask = keys.length - 1;
+
+        for (int i = index(key, mask); keys[i] != 0; i = (i + 1) & mask)
+        {
+            if (keys[i] == key)
+            {
+                V previous = (V) values[i];
+                shift(i, mask);
+                size--;
+
+                return previous;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Call the given action for each entry of the map
+     *
+     * @param action The action to call
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action)
+    {
+        if (hasZero)
+        {
+            action.accept(0, (V) zeroValue);
+        }
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != 0)
+            {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @return A shallow copy of this map
+     */
+    public LongMap<V> copy()
+    {
+        LongMap<V> copy = new LongMap<>(0);
+
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.values = Arrays.copyOf(values, values.length);
+        copy.size = size;
+        copy.hasZero = hasZero;
+        copy.zeroValue = zeroValue;
+
+        return copy;
+    }
+
+    // Backward shift deletion, keeps probe chains without tombstones
+    private void shift(int hole, int mask)
+    {
+        int i = hole;
+
+        while (true)
+        {
+            i = (i + 1) & mask;
+
+            if (keys[i] == 0)
+            {
+                break;
+            }
+
+            int home = index(keys[i], mask);
+
+            if (((i - home) & mask) >= ((i - hole) & mask))
+            {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+
+        keys[hole] = 0;
+        values[hole] = null;
+    }
+
+    private void resize(int capacity)
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+
+        int mask = capacity - 1;
+
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldKeys[j] != 0)
+            {
+                int i = index(oldKeys[j], mask);
+
+                while (keys[i] != 0)
+                {
+                    i = (i + 1) & mask;
+                }
+
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int index(long key, int mask)
+    {
+        // Snowflakes low bits are mostly a counter, mixing them
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V>
+    {
+        void accept(long key, V value);
+    }
+}
@@ -19,7 +19,6 @@
 package org.krobot.util;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -128,41 +127,19 @@ public final class MessageUtils
         return messages.toArray(new String[messages.size()]);
     }
 
+    /**
+     * Split a message from whitespaces, ignoring the one in quotes
+     * (see {@link Tokens}).
+     *
+     * @param string The message to split
+     * @param keepQuotes If the quoted parts should keep their quotes
+     *
+     * @return The message split
+     */
     public static String[] splitWithQuotes(String string, boolean keepQuotes)
     {
-        List<String> result = new ArrayList<>();
-        String[] split = string.split(" ");
-
-        for (int i = 0; i < split.length; i++)
-        {
-            StringBuilder current = new StringBuilder(split[i]);
-
-            if (current.toString().startsWith("\""))
-            {
-                i++;
-
-                while (i < split.length && !current.toString().endsWith("\""))
-                {
-                    current.append(" ").append(split[i]);
-                    i++;
-                }
-
-                i--;
-            }
-
-            String done = current.toString();
-
-            if (!done.endsWith("\""))
-            {
-                result.addAll(Arrays.asList(done.split(" ")));
-            }
-            else
-            {
-                result.add(keepQuotes ? done : done.replace("\"", ""));
-            }
-        }
-
-        return result.toArray(new String[result.size()]);
+        Tokens tokens = Tokens.tokenize(string);
+        return keepQuotes ? tokens.toRawArray() : tokens.toArray();
     }
 
     /**
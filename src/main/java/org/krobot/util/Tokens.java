@@ -0,0 +1,263 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.util;
+
+/**
+ * Tokens<br><br>
+ *
+ *
+ * A line split from whitespaces, ignoring the ones in quotes.<br>
+ * Tokens are only views (offsets) into the original line, strings are
+ * created only when one is asked for.<br><br>
+ *
+ * <b>Example :</b>
+ *
+ * <pre>
+ *     I am a "discord bot"
+ * </pre>
+ *
+ * Gives the tokens ["I", "am", "a", "discord bot"]. A quote that is never
+ * closed quotes the rest of the line.
+ */
+public final class Tokens
+{
+    private static final int[] EMPTY = new int[0];
+    private static final boolean[] EMPTY_FLAGS = new boolean[0];
+
+    private String source;
+
+    private int[] starts;
+    private int[] ends;
+    private boolean[] quoted;
+    private int count;
+
+    private Tokens(String source)
+    {
+        this.source = source;
+
+        this.starts = EMPTY;
+        this.ends = EMPTY;
+        this.quoted = EMPTY_FLAGS;
+        this.count = 0;
+    }
+
+    /**
+     * Tokenize a whole line
+     *
+     * @param line The line to split
+     *
+     * @return The tokens of the line
+     */
+    public static Tokens tokenize(String line)
+    {
+        return tokenize(line, 0);
+    }
+
+    /**
+     * Tokenize a line, starting at the given index
+     *
+     * @param line The line to split
+     * @param from The index where to start (by example to skip a prefix)
+     *
+     * @return The tokens of the line
+     */
+    public static Tokens tokenize(String line, int from)
+    {
+        Tokens tokens = new Tokens(line);
+        int length = line.length();
+        int i = from;
+
+        while (i < length)
+        {
+            char c = line.charAt(i);
+
+            if (isWhitespace(c))
+            {
+                i++;
+            }
+            else if (c == '"')
+            {
+                int start = ++i;
+
+                while (i < length && line.charAt(i) != '"')
+                {
+                    i++;
+                }
+
+                tokens.add(start, i, true);
+                i++;
+            }
+            else
+            {
+                int start = i;
+
+                while (i < length && !isWhitespace(c = line.charAt(i)) && c != '"')
+                {
+                    i++;
+                }
+
+                tokens.add(start, i, false);
+            }
+        }
+
+        return tokens;
+    }
+
+    private void add(int start, int end, boolean quote)
+    {
+        if (count == starts.length)
+        {
+            int size = count == 0 ? 8 : count * 2;
+
+            int[] starts = new int[size];
+            int[] ends = new int[size];
+            boolean[] quoted = new boolean[size];
+
+            System.arraycopy(this.starts, 0, starts, 0, count);
+            System.arraycopy(this.ends, 0, ends, 0, count);
+            System.arraycopy(this.quoted, 0, quoted, 0, count);
+
+            this.starts = starts;
+            this.ends = ends;
+            this.quoted = quoted;
+        }
+
+        starts[count] = start;
+        ends[count] = end;
+        this.quoted[count] = quote;
+        count++;
+    }
+
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * @return The tokenized line
+     */
+    public String source()
+    {
+        return source;
+    }
+
+    /**
+     * @return The number of tokens
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * @param index The index of the token
+     *
+     * @return The index of the first char of the token in the line (after the opening quote if quoted)
+     */
+    public int start(int index)
+    {
+        return starts[index];
+    }
+
+    /**
+     * @param index The index of the token
+     *
+     * @return The index after the last char of the token in the line (before the closing quote if quoted)
+     */
+    public int end(int index)
+    {
+        return ends[index];
+    }
+
+    /**
+     * @param index The index of the token
+     *
+     * @return If the token is between quotes
+     */
+    public boolean isQuoted(int index)
+    {
+        return quoted[index];
+    }
+
+    /**
+     * @param index The index of the token
+     *
+     * @return The token content, without its quotes
+     */
+    public String get(int index)
+    {
+        return source.substring(starts[index], ends[index]);
+    }
+
+    /**
+     * @param index The index of the token
+     *
+     * @return The token as it was written, quotes included
+     */
+    public String raw(int index)
+    {
+        if (!isQuoted(index))
+        {
+            return get(index);
+        }
+
+        int end = ends[index];
+        return source.substring(starts[index] - 1, end < source.length() ? end + 1 : end);
+    }
+
+    /**
+     * @return The content of every token
+     */
+    public String[] toArray()
+    {
+        return toArray(0);
+    }
+
+    /**
+     * @param from The index of the first token to take
+     *
+     * @return The content of every token from the given one
+     */
+    public String[] toArray(int from)
+    {
+        String[] result = new String[Math.max(count - from, 0)];
+
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = get(from + i);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Every token as it was written, quotes included
+     */
+    public String[] toRawArray()
+    {
+        String[] result = new String[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            result[i] = raw(i);
+        }
+
+        return result;
+    }
+}
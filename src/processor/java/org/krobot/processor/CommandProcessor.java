@@ -0,0 +1,319 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Validates the paths of the @Command annotations at compile time, and
+ * generates a registry (a KrobotCommands class per package, implementing
+ * org.krobot.command.CommandRegistry) with the parsed paths, so the
+ * runtime doesn't have to parse them nor read the annotations.
+ */
+@SupportedAnnotationTypes(CommandProcessor.COMMAND)
+public class CommandProcessor extends AbstractProcessor
+{
+    public static final String COMMAND = "org.krobot.command.Command";
+    public static final String REGISTRY = "org.krobot.command.CommandRegistry";
+    public static final String REGISTRY_CLASS = "KrobotCommands";
+
+    private final Set<String> registries = new TreeSet<>();
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round)
+    {
+        if (round.processingOver())
+        {
+            writeServices();
+            return false;
+        }
+
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(COMMAND);
+
+        if (annotation == null)
+        {
+            return false;
+        }
+
+        Map<PackageElement, List<String>> packages = new LinkedHashMap<>();
+        Map<PackageElement, List<Element>> origins = new LinkedHashMap<>();
+
+        for (Element element : round.getElementsAnnotatedWith(annotation))
+        {
+            if (element.getKind() != ElementKind.CLASS)
+            {
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+            String registration = compile(type, findMirror(type, annotation));
+
+            if (registration != null)
+            {
+                PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+
+                packages.computeIfAbsent(pkg, p -> new ArrayList<>()).add(registration);
+                origins.computeIfAbsent(pkg, p -> new ArrayList<>()).add(type);
+            }
+        }
+
+        packages.forEach((pkg, registrations) -> generate(pkg, registrations, origins.get(pkg)));
+
+        // Other processors may use the annotation too
+        return false;
+    }
+
+    private String compile(TypeElement type, AnnotationMirror mirror)
+    {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+        AnnotationValue pathValue = value(values, "value");
+
+        String path = (String) pathValue.getValue();
+        PathParser parser = new PathParser(path);
+
+        try
+        {
+            parser.parse();
+        }
+        catch (PathParser.PathSyntaxException e)
+        {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Invalid command path: " + e.getMessage(), type, mirror, pathValue);
+            return null;
+        }
+
+        if (type.getModifiers().contains(Modifier.PRIVATE) || (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)))
+        {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Command classes can't be private or inner (non-static) classes", type);
+            return null;
+        }
+
+        String arguments = parser.getArgs().stream().map(arg -> {
+            if (arg.getChoices() != null)
+            {
+                return "CommandDescriptor.choice(" + arg.isRequired() + ", " + literal(arg.getName()) + ", " + arg.getChoices().stream().map(CommandProcessor::literal).collect(Collectors.joining(", ")) + ")";
+            }
+
+            return "CommandDescriptor.argument(" + arg.isRequired() + ", " + literal(arg.getName()) + ", " + literal(arg.getType()) + ", " + arg.isList() + ")";
+        }).collect(Collectors.joining(", "));
+
+        return "commands.put(" + type.getQualifiedName() + ".class, new CommandDescriptor(" +
+               literal(path) + ", " +
+               literal(parser.getLabel()) + ", " +
+               "new CommandDescriptor.Argument[]{" + arguments + "}, " +
+               literal((String) value(values, "desc").getValue()) + ", " +
+               "new String[]{" + list(values, "aliases").stream().map(v -> literal((String) v.getValue())).collect(Collectors.joining(", ")) + "}, " +
+               value(values, "errorMP").getValue() + ", " +
+               value(values, "handleMP").getValue() + ", " +
+               "new Class[]{" + classes(values, "filters") + "}, " +
+               "new Class[]{" + classes(values, "subs") + "}));";
+    }
+
+    private void generate(PackageElement pkg, List<String> registrations, List<Element> origins)
+    {
+        String packageName = pkg.getQualifiedName().toString();
+        String name = REGISTRY_CLASS;
+
+        // A new class if commands of this package were generated by another processor
+        for (int i = 2; generated.contains(qualified(packageName, name)); i++)
+        {
+            name = REGISTRY_CLASS + i;
+        }
+
+        String qualified = qualified(packageName, name);
+        generated.add(qualified);
+
+        try
+        {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualified, origins.toArray(new Element[0]));
+
+            try (Writer writer = file.openWriter())
+            {
+                if (!packageName.isEmpty())
+                {
+                    writer.write("package " + packageName + ";\n\n");
+                }
+
+                writer.write("import java.util.Map;\n\n");
+                writer.write("import org.krobot.command.CommandDescriptor;\n");
+                writer.write("import org.krobot.command.CommandHandler;\n");
+                writer.write("import org.krobot.command.CommandRegistry;\n\n");
+                writer.write("/**\n * Generated by " + getClass().getName() + ", do not edit\n */\n");
+                writer.write("public final class " + name + " implements CommandRegistry\n{\n");
+                writer.write("    @Override\n");
+                writer.write("    @SuppressWarnings(\"unchecked\")\n");
+                writer.write("    public void register(Map<Class<? extends CommandHandler>, CommandDescriptor> commands)\n    {\n");
+
+                for (String registration : registrations)
+                {
+                    writer.write("        " + registration + "\n");
+                }
+
+                writer.write("    }\n}\n");
+            }
+        }
+        catch (IOException e)
+        {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Can't generate the command registry " + qualified + ": " + e.getMessage());
+            return;
+        }
+
+        registries.add(qualified);
+    }
+
+    private void writeServices()
+    {
+        if (registries.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + REGISTRY);
+
+            try (Writer writer = file.openWriter())
+            {
+                for (String registry : registries)
+                {
+                    writer.write(registry + "\n");
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Can't register the command registries: " + e.getMessage());
+        }
+    }
+
+    private static AnnotationMirror findMirror(TypeElement type, TypeElement annotation)
+    {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors())
+        {
+            if (mirror.getAnnotationType().asElement().equals(annotation))
+            {
+                return mirror;
+            }
+        }
+
+        throw new IllegalStateException("No @Command on " + type);
+    }
+
+    private static AnnotationValue value(Map<? extends ExecutableElement, ? extends AnnotationValue> values, String name)
+    {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet())
+        {
+            if (entry.getKey().getSimpleName().contentEquals(name))
+            {
+                return entry.getValue();
+            }
+        }
+
+        throw new IllegalStateException("No member '" + name + "' in @Command");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<? extends AnnotationValue> list(Map<? extends ExecutableElement, ? extends AnnotationValue> values, String name)
+    {
+        return (List<? extends AnnotationValue>) value(values, name).getValue();
+    }
+
+    private String classes(Map<? extends ExecutableElement, ? extends AnnotationValue> values, String name)
+    {
+        return list(values, name).stream()
+                                 .map(value -> processingEnv.getTypeUtils().erasure((TypeMirror) value.getValue()) + ".class")
+                                 .collect(Collectors.joining(", "));
+    }
+
+    private static String qualified(String packageName, String name)
+    {
+        return packageName.isEmpty() ? name : packageName + "." + name;
+    }
+
+    private static String literal(String value)
+    {
+        StringBuilder result = new StringBuilder("\"");
+
+        for (char c : value.toCharArray())
+        {
+            switch (c)
+            {
+                case '"':
+                    result.append("\\\"");
+                    break;
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                case '\t':
+                    result.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e)
+                    {
+                        result.append(String.format("\\u%04x", (int) c));
+                    }
+                    else
+                    {
+                        result.append(c);
+                    }
+            }
+        }
+
+        return result.append('"').toString();
+    }
+}
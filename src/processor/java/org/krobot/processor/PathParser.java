@@ -0,0 +1,306 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a command path, this is the grammar of both the runtime
+ * PathCompiler and the CommandProcessor. It doesn't know the argument
+ * factories, so types are not checked: they can be registered at runtime.
+ */
+public class PathParser
+{
+    private String path;
+    private int cursor;
+
+    private String label;
+    private List<Argument> args;
+
+    public PathParser(String path)
+    {
+        this.path = path;
+
+        this.cursor = 0;
+        this.args = new ArrayList<>();
+    }
+
+    public void parse() throws PathSyntaxException
+    {
+        label = readWord();
+
+        while (hasNext())
+        {
+            skipEnsure(' ');
+
+            switch (next("'[' or '<'"))
+            {
+                case '<':
+                    readArg(true);
+                    break;
+                case '[':
+                    readArg(false);
+                    break;
+                default:
+                    throw error("Expected '<' or '[' got '" + previous() + "'");
+            }
+        }
+    }
+
+    protected void readArg(boolean required) throws PathSyntaxException
+    {
+        int start = cursor;
+        char end = required ? '>' : ']';
+
+        String name = readWord();
+
+        if (args.stream().anyMatch(arg -> arg.name.equalsIgnoreCase(name)))
+        {
+            throw error("Duplicated argument '" + name + "'", cursor - name.length() + 1, cursor);
+        }
+
+        String type = null;
+        List<String> choices = null;
+        boolean list = false;
+
+        char next = next("':' or '" + end + "'");
+
+        if (next == ':')
+        {
+            type = readWord();
+            next = next("'...', '|' or '" + end + "'");
+        }
+
+        if (type != null && next == '|')
+        {
+            choices = new ArrayList<>();
+            choices.add(type);
+
+            while (next == '|')
+            {
+                choices.add(readWord());
+                next = next("'|' or '" + end + "'");
+            }
+
+            type = String.join("|", choices);
+        }
+        else if (next == '.')
+        {
+            skipEnsure('.');
+            skipEnsure('.');
+
+            list = true;
+
+            skipEnsure(end);
+        }
+        else if (next != end)
+        {
+            throw error("Expected " + (type == null ? "':' or " : "") + "'" + end + "' got '" + next + "'");
+        }
+
+        if (args.size() > 0)
+        {
+            Argument last = args.get(args.size() - 1);
+
+            if (required && !last.required)
+            {
+                throw error("Can't put a required argument after an optional one", start, cursor);
+            }
+            else if (last.list)
+            {
+                throw error("List argument must stay the last one", start, cursor);
+            }
+        }
+
+        args.add(new Argument(required, name, type == null ? "string" : type, list, choices));
+    }
+
+    protected void skipEnsure(char c) throws PathSyntaxException
+    {
+        char next = next("'" + c + "'");
+
+        if (next != c)
+        {
+            throw error("Expected '" + c + "' got '" + next + "'");
+        }
+    }
+
+    protected String readWord()
+    {
+        StringBuilder result = new StringBuilder();
+
+        while (cursor < path.length())
+        {
+            char current = path.charAt(cursor);
+
+            if (!Character.isLetterOrDigit(current) && current != '-')
+            {
+                break;
+            }
+
+            result.append(current);
+            cursor++;
+        }
+
+        return result.toString();
+    }
+
+    protected boolean hasNext()
+    {
+        return cursor < path.length();
+    }
+
+    protected char previous()
+    {
+        return path.charAt(cursor - 1);
+    }
+
+    protected char next(String expectation) throws PathSyntaxException
+    {
+        if (cursor >= path.length())
+        {
+            throw error("Unexpected end of path, expected " + expectation);
+        }
+
+        return path.charAt(cursor++);
+    }
+
+    protected PathSyntaxException error(String message)
+    {
+        return error(message, cursor, cursor);
+    }
+
+    protected PathSyntaxException error(String message, int from, int to)
+    {
+        return new PathSyntaxException(message, path, from, to);
+    }
+
+    public String getLabel()
+    {
+        return label;
+    }
+
+    public List<Argument> getArgs()
+    {
+        return args;
+    }
+
+    public static class Argument
+    {
+        private final boolean required;
+        private final String name;
+        private final String type;
+        private final boolean list;
+        private final List<String> choices;
+
+        Argument(boolean required, String name, String type, boolean list, List<String> choices)
+        {
+            this.required = required;
+            this.name = name;
+            this.type = type;
+            this.list = list;
+            this.choices = choices;
+        }
+
+        public boolean isRequired()
+        {
+            return required;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getType()
+        {
+            return type;
+        }
+
+        public boolean isList()
+        {
+            return list;
+        }
+
+        /**
+         * @return The values the argument can take, or null if it isn't a choice
+         */
+        public List<String> getChoices()
+        {
+            return choices;
+        }
+    }
+
+    public static class PathSyntaxException extends Exception
+    {
+        private final String reason;
+        private final String path;
+        private final int from;
+        private final int to;
+
+        public PathSyntaxException(String reason, String path, int from, int to)
+        {
+            super(reason + "\n    " + path + "\n    " + repeat(' ', from - 1) + repeat('^', to - from + 1));
+
+            this.reason = reason;
+            this.path = path;
+            this.from = from;
+            this.to = to;
+        }
+
+        public String getReason()
+        {
+            return reason;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        /**
+         * @return The column (from 1) where the error starts
+         */
+        public int getFrom()
+        {
+            return from;
+        }
+
+        /**
+         * @return The column (from 1) where the error ends, inclusive
+         */
+        public int getTo()
+        {
+            return to;
+        }
+
+        private static String repeat(char c, int amount)
+        {
+            StringBuilder result = new StringBuilder();
+
+            for (int i = 0; i < amount; i++)
+            {
+                result.append(c);
+            }
+
+            return result.toString();
+        }
+    }
+}
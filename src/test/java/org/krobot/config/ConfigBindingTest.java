@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConfigBindingTest
+{
+    public interface Settings
+    {
+        @ConfigValue("bot.ids")
+        List<Long> ids();
+
+        @ConfigValue(value = "bot.admins", def = "[1, 2]")
+        List<Long> admins();
+
+        @ConfigValue(value = "bot.limit", def = "10")
+        int limit();
+    }
+
+    private File file;
+    private FileConfig config;
+    private ConfigProvider provider;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("krobot-binding", ".json");
+        Files.write(file.toPath(), "{\"ids\": [3, 4]}".getBytes(StandardCharsets.UTF_8));
+
+        config = new FileConfig(file);
+        provider = new ConfigProvider();
+        provider.register("bot", config);
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void readsValuesAndDefaultsWithTheGenericType()
+    {
+        Settings settings = provider.bind(Settings.class);
+
+        assertEquals(Arrays.asList(3L, 4L), settings.ids());
+        assertEquals(Arrays.asList(1L, 2L), settings.admins());
+        assertEquals(10, settings.limit());
+
+        Long id = settings.ids().get(0);
+        Long admin = settings.admins().get(0);
+
+        assertEquals(Long.valueOf(3), id);
+        assertEquals(Long.valueOf(1), admin);
+    }
+
+    @Test
+    public void rebuildsTheSnapshotOnChange()
+    {
+        Settings settings = provider.bind(Settings.class);
+
+        config.set("admins", Arrays.asList(5L));
+        config.set("limit", 20);
+
+        assertEquals(Arrays.asList(5L), settings.admins());
+        assertEquals(20, settings.limit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingValueWithoutDefault() throws IOException
+    {
+        Files.write(file.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+        config.reload();
+
+        provider.bind(Settings.class);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConfigFlusherTest
+{
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("krobot-flusher", ".json");
+        Files.write(file.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void waitsForTheScheduledFlush() throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        FileConfig config = new FileConfig(file, 1)
+        {
+            @Override
+            public void flush()
+            {
+                started.countDown();
+
+                try
+                {
+                    Thread.sleep(200);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                super.flush();
+            }
+        };
+
+        config.set("name", "krobot");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // The scheduled flush is running, its config isn't pending anymore
+        ConfigFlusher.flushAll();
+
+        assertEquals("krobot", new FileConfig(file).at("name", String.class));
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JournalConfigTest
+{
+    private File folder;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        folder = Files.createTempDirectory("krobot-journal").toFile();
+        file = new File(folder, "data.json");
+
+        Files.write(file.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try (Stream<java.nio.file.Path> files = Files.walk(folder.toPath()))
+        {
+            files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void replaysTheJournal() throws IOException
+    {
+        JournalConfig config = new JournalConfig(file);
+
+        config.set("name", "krobot");
+        config.push("log", 1);
+        config.push("log", 2);
+        config.set("nested.value", 3);
+        config.push("log", 4);
+
+        JournalConfig replayed = new JournalConfig(file);
+
+        assertEquals("krobot", replayed.at("name", String.class));
+        assertArrayEquals(new Integer[]{1, 2, 4}, replayed.at("log", Integer[].class));
+        assertEquals(Integer.valueOf(3), replayed.at("nested.value", Integer.class));
+    }
+
+    @Test
+    public void readsPendingPushesInOrder() throws IOException
+    {
+        JournalConfig config = new JournalConfig(file);
+        ConfigPath<Integer[]> path = config.path("log", Integer[].class);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            config.push("log", i);
+
+            if (i % 100 == 0)
+            {
+                assertEquals(i + 1, path.get().length);
+            }
+        }
+
+        Integer[] values = config.at("log", Integer[].class);
+
+        assertEquals(1000, values.length);
+
+        for (int i = 0; i < values.length; i++)
+        {
+            assertEquals(i, values[i].intValue());
+        }
+    }
+
+    @Test
+    public void callsListenersOfPushes() throws IOException
+    {
+        JournalConfig config = new JournalConfig(file);
+        int[] calls = new int[2];
+
+        config.onChange("stats.log", (c, p) -> calls[0]++);
+        config.onChange("stats.other", (c, p) -> calls[1]++);
+
+        config.push("stats.log", 1);
+        config.push("stats.log", 2);
+
+        assertEquals(2, calls[0]);
+        assertEquals(0, calls[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPushOnNonArray() throws IOException
+    {
+        JournalConfig config = new JournalConfig(file);
+
+        config.set("name", "krobot");
+        config.push("name", 1);
+    }
+
+    @Test
+    public void truncatesTornRecord() throws IOException
+    {
+        JournalConfig config = new JournalConfig(file);
+
+        config.push("log", 1);
+        config.push("log", 2);
+
+        File journal = config.getJournalFile();
+        long valid = journal.length();
+
+        // A record cut by a crash: the header announces more than what was written
+        try (RandomAccessFile raf = new RandomAccessFile(journal, "rw"))
+        {
+            raf.seek(valid);
+            raf.write(ByteBuffer.allocate(12).putInt(100).putInt(0).putInt(42).array());
+        }
+
+        JournalConfig replayed = new JournalConfig(file);
+
+        assertArrayEquals(new Integer[]{1, 2}, replayed.at("log", Integer[].class));
+        assertEquals(valid, journal.length());
+
+        replayed.push("log", 3);
+
+        assertArrayEquals(new Integer[]{1, 2, 3}, new JournalConfig(file).at("log", Integer[].class));
+    }
+
+    @Test
+    public void truncatesRecordWithWrongChecksum() throws IOException
+    {
+        JournalConfig config = new JournalConfig(file);
+
+        config.push("log", 1);
+        long valid = config.getJournalFile().length();
+        config.push("log", 2);
+
+        File journal = config.getJournalFile();
+
+        try (RandomAccessFile raf = new RandomAccessFile(journal, "rw"))
+        {
+            raf.seek(journal.length() - 2);
+            raf.write('9');
+        }
+
+        JournalConfig replayed = new JournalConfig(file);
+
+        assertArrayEquals(new Integer[]{1}, replayed.at("log", Integer[].class));
+        assertEquals(valid, journal.length());
+    }
+
+    @Test
+    public void compactsWhenClosed() throws IOException
+    {
+        JournalConfig config = new JournalConfig(file);
+
+        config.push("log", 1);
+        config.set("name", "krobot");
+        config.close();
+
+        String snapshot = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+        assertTrue(snapshot, snapshot.contains("krobot"));
+
+        JournalConfig reopened = new JournalConfig(file);
+
+        assertArrayEquals(new Integer[]{1}, reopened.at("log", Integer[].class));
+        assertEquals("krobot", reopened.at("name", String.class));
+    }
+
+    @Test
+    public void doesNotReload() throws IOException
+    {
+        JournalConfig config = new JournalConfig(file);
+
+        config.set("name", "krobot");
+        Files.write(file.toPath(), "{\"name\": \"edited\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(config.reload());
+        assertEquals("krobot", config.at("name", String.class));
+    }
+}
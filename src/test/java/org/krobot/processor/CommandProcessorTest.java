@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.krobot.command.CommandDescriptor;
+import org.krobot.command.CommandHandler;
+import org.krobot.command.CommandRegistry;
+
+import static org.junit.Assert.*;
+
+public class CommandProcessorTest
+{
+    private File folder;
+    private File classes;
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        folder = Files.createTempDirectory("krobot-processor").toFile();
+        classes = new File(folder, "classes");
+        diagnostics = new DiagnosticCollector<>();
+
+        assertTrue(classes.mkdir());
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try (Stream<java.nio.file.Path> files = Files.walk(folder.toPath()))
+        {
+            files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void generatesTheRegistry() throws Exception
+    {
+        assertTrue(compile(command("PlayCommand", "@Command(value = \"play <song> [mode:loop|once]\", desc = \"Plays a song\", aliases = \"p\")")));
+
+        String registry = read(new File(classes, "test/KrobotCommands.java"));
+
+        assertTrue(registry.contains("CommandDescriptor.argument(true, \"song\", \"string\", false)"));
+        assertTrue(registry.contains("CommandDescriptor.choice(false, \"mode\", \"loop\", \"once\")"));
+        assertEquals("test.KrobotCommands\n", read(new File(classes, "META-INF/services/" + CommandRegistry.class.getName())));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader()))
+        {
+            Map<Class<? extends CommandHandler>, CommandDescriptor> commands = new HashMap<>();
+            ((CommandRegistry) loader.loadClass("test.KrobotCommands").newInstance()).register(commands);
+
+            CommandDescriptor descriptor = commands.get(loader.loadClass("test.PlayCommand"));
+
+            assertEquals(1, commands.size());
+            assertEquals("play <song> [mode:loop|once]", descriptor.getPath());
+            assertEquals("play", descriptor.getLabel());
+            assertEquals("Plays a song", descriptor.getDescription());
+            assertArrayEquals(new String[]{"p"}, descriptor.getAliases());
+        }
+    }
+
+    @Test
+    public void reportsDuplicatedArguments() throws IOException
+    {
+        String error = assertError(command("DuplicatedCommand", "@Command(\"play <song> [song]\")"), "Duplicated argument 'song'");
+        String[] lines = error.split("\n");
+
+        // The carets are under the second 'song', whatever the compiler indentation is
+        assertEquals(lines[1].indexOf("play") + 13, lines[2].indexOf("^^^^"));
+        assertEquals("^^^^", lines[2].trim());
+    }
+
+    @Test
+    public void reportsRequiredAfterOptional() throws IOException
+    {
+        assertError(command("OrderCommand", "@Command(\"play [song] <mode>\")"),
+                    "Can't put a required argument after an optional one");
+    }
+
+    @Test
+    public void reportsArgumentsAfterList() throws IOException
+    {
+        assertError(command("ListCommand", "@Command(\"play <songs...> <mode>\")"),
+                    "List argument must stay the last one");
+    }
+
+    @Test
+    public void reportsUnexpectedEnd() throws IOException
+    {
+        assertError(command("EndCommand", "@Command(\"play <song\")"),
+                    "Unexpected end of path, expected ':' or '>'");
+    }
+
+    @Test
+    public void reportsInnerClasses() throws IOException
+    {
+        String source = "package test;\n\n" +
+                        "import org.krobot.MessageContext;\n" +
+                        "import org.krobot.command.*;\n\n" +
+                        "public class Outer\n{\n" +
+                        "    @Command(\"play\")\n" +
+                        "    public class InnerCommand implements CommandHandler\n    {\n" +
+                        "        public Object handle(MessageContext context, ArgumentMap args)\n        {\n            return null;\n        }\n" +
+                        "    }\n}\n";
+
+        assertError(source("Outer", source), "Command classes can't be private or inner (non-static) classes");
+    }
+
+    private String assertError(File source, String message) throws IOException
+    {
+        assertFalse(compile(source));
+        assertFalse(new File(classes, "test/KrobotCommands.java").exists());
+
+        List<String> errors = diagnostics.getDiagnostics()
+                                         .stream()
+                                         .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                                         .map(diagnostic -> diagnostic.getMessage(null))
+                                         .collect(Collectors.toList());
+
+        assertEquals(errors.toString(), 1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).contains(message));
+
+        return errors.get(0);
+    }
+
+    private File command(String name, String annotation) throws IOException
+    {
+        return source(name, "package test;\n\n" +
+                            "import org.krobot.MessageContext;\n" +
+                            "import org.krobot.command.*;\n\n" +
+                            annotation + "\n" +
+                            "public class " + name + " implements CommandHandler\n{\n" +
+                            "    public Object handle(MessageContext context, ArgumentMap args)\n    {\n        return null;\n    }\n}\n");
+    }
+
+    private File source(String name, String content) throws IOException
+    {
+        File file = new File(folder, "test/" + name + ".java");
+
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+
+    private boolean compile(File source) throws IOException
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8))
+        {
+            List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                                                 "-d", classes.getPath(), "-s", classes.getPath());
+
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, options, null, files.getJavaFileObjects(source));
+            task.setProcessors(Collections.singletonList(new CommandProcessor()));
+
+            return task.call();
+        }
+    }
+
+    private static String read(File file) throws IOException
+    {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
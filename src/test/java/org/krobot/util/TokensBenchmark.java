@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the command line splitting of {@link Tokens} with the regex one
+ * it replaced, run with './gradlew tokensBenchmark'.<br><br>
+ *
+ * Both sides do what CommandManager does for a command: split the content
+ * after the prefix, then build the array of the arguments (after the label
+ * and one sub command). The build has no JMH, so this is a plain timed loop
+ * after a warm-up, only meant to compare the two.
+ */
+public final class TokensBenchmark
+{
+    private static final String[] LINES = {
+        "!play \"never gonna give you up\" 3",
+        "!config set prefix \"? \" --global",
+        "!ban @someone spamming links in every channel \"since yesterday\""
+    };
+
+    private static final int PREFIX = 1;
+    private static final int DEPTH = 2;
+
+    private static final int WARMUP = 500_000;
+    private static final int ITERATIONS = 2_000_000;
+
+    private static int sink;
+
+    private TokensBenchmark()
+    {
+    }
+
+    public static void main(String[] args)
+    {
+        for (String line : LINES)
+        {
+            String[] expected = regexArgs(line);
+            String[] actual = tokensArgs(line);
+
+            if (!Arrays.equals(expected, actual))
+            {
+                throw new IllegalStateException("Different arguments for '" + line + "': " + Arrays.toString(expected) + " and " + Arrays.toString(actual));
+            }
+        }
+
+        run("regex split + args", TokensBenchmark::regexArgs);
+        run("Tokens.tokenize + args", TokensBenchmark::tokensArgs);
+        run("Tokens.tokenize only", line -> {
+            Tokens tokens = Tokens.tokenize(line, PREFIX);
+            sink += tokens.size();
+
+            return null;
+        });
+
+        // So the loops can't be removed
+        System.out.println("(" + sink + ")");
+    }
+
+    private static void run(String name, Split split)
+    {
+        for (int i = 0; i < WARMUP; i++)
+        {
+            consume(split.split(LINES[i % LINES.length]));
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            consume(split.split(LINES[i % LINES.length]));
+        }
+
+        System.out.printf("%-24s %8.1f ns/op%n", name, (System.nanoTime() - start) / (double) ITERATIONS);
+    }
+
+    private static void consume(String[] args)
+    {
+        if (args != null)
+        {
+            sink += args.length;
+        }
+    }
+
+    private static String[] tokensArgs(String line)
+    {
+        return Tokens.tokenize(line, PREFIX).toArray(DEPTH);
+    }
+
+    /**
+     * The splitting of CommandManager before Tokens
+     */
+    private static String[] regexArgs(String line)
+    {
+        List<String> split = new ArrayList<>();
+        Matcher matcher = Pattern.compile("[^\\s\"]+|\"([^\"]*)\"").matcher(line.substring(PREFIX));
+
+        while (matcher.find())
+        {
+            split.add(matcher.group(1) != null ? matcher.group(1) : matcher.group());
+        }
+
+        String[] result = split.toArray(new String[0]);
+        return Arrays.copyOfRange(result, Math.min(DEPTH, result.length), result.length);
+    }
+
+    private interface Split
+    {
+        String[] split(String line);
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.training;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.krobot.Krobot;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * A local stand-in of the Discord API and gateway, answering just enough for
+ * JDA to log in and be ready, as a bot in no guild. It is used by the
+ * {@link TrainingBoot}, through the {@link Krobot#PROPERTY_GATEWAY} property.
+ */
+public class StandInGateway implements Closeable
+{
+    private static final String HOST = "127.0.0.1";
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int HEARTBEAT_INTERVAL = 41250;
+
+    private static final int OP_DISPATCH = 0;
+    private static final int OP_HEARTBEAT = 1;
+    private static final int OP_IDENTIFY = 2;
+    private static final int OP_HELLO = 10;
+    private static final int OP_HEARTBEAT_ACK = 11;
+
+    private static final int FRAME_TEXT = 0x1;
+    private static final int FRAME_CLOSE = 0x8;
+    private static final int FRAME_PING = 0x9;
+    private static final int FRAME_PONG = 0xA;
+
+    private final ServerSocket server;
+    private final ExecutorService connections;
+
+    public StandInGateway() throws IOException
+    {
+        this.server = new ServerSocket(0, 50, InetAddress.getByName(HOST));
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Stand-in Gateway");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        connections.execute(this::accept);
+    }
+
+    /**
+     * @return The address of the stand-in, as 'host:port'
+     */
+    public String getAddress()
+    {
+        return HOST + ":" + server.getLocalPort();
+    }
+
+    private void accept()
+    {
+        while (!server.isClosed())
+        {
+            try
+            {
+                Socket socket = server.accept();
+                connections.execute(() -> handle(socket));
+            }
+            catch (IOException ignored)
+            {
+                // Closed
+            }
+        }
+    }
+
+    private void handle(Socket socket)
+    {
+        try (Socket ignored = socket)
+        {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+            String request = readLine(in);
+            Map<String, String> headers = new HashMap<>();
+            String line;
+
+            while (!(line = readLine(in)).isEmpty())
+            {
+                int separator = line.indexOf(':');
+
+                if (separator != -1)
+                {
+                    headers.put(line.substring(0, separator).trim().toLowerCase(), line.substring(separator + 1).trim());
+                }
+            }
+
+            if ("websocket".equalsIgnoreCase(headers.get("upgrade")))
+            {
+                gateway(in, out, headers.get("sec-websocket-key"));
+            }
+            else
+            {
+                api(in, out, request, headers);
+            }
+        }
+        catch (IOException ignored)
+        {
+            // Connection closed by JDA
+        }
+    }
+
+    private void api(DataInputStream in, DataOutputStream out, String request, Map<String, String> headers) throws IOException
+    {
+        String length = headers.get("content-length");
+
+        if (length != null)
+        {
+            in.skipBytes(Integer.parseInt(length));
+        }
+
+        String[] parts = request.split(" ");
+        String path = parts.length > 1 ? parts[1] : "/";
+
+        if (path.contains("?"))
+        {
+            path = path.substring(0, path.indexOf('?'));
+        }
+
+        String status = "200 OK";
+        JsonObject body;
+
+        if (path.endsWith("/users/@me"))
+        {
+            body = selfUser();
+        }
+        else if (path.endsWith("/gateway/bot") || path.endsWith("/gateway"))
+        {
+            JsonObject limit = new JsonObject();
+            limit.addProperty("total", 1000);
+            limit.addProperty("remaining", 1000);
+            limit.addProperty("reset_after", 0);
+            limit.addProperty("max_concurrency", 1);
+
+            body = new JsonObject();
+            body.addProperty("url", "ws://" + getAddress());
+            body.addProperty("shards", 1);
+            body.add("session_start_limit", limit);
+        }
+        else
+        {
+            status = "404 Not Found";
+
+            body = new JsonObject();
+            body.addProperty("message", "404: Not Found");
+            body.addProperty("code", 0);
+        }
+
+        byte[] content = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        out.write(("HTTP/1.1 " + status + "\r\n" +
+                   "Content-Type: application/json\r\n" +
+                   "Content-Length: " + content.length + "\r\n" +
+                   "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(content);
+        out.flush();
+    }
+
+    private void gateway(DataInputStream in, DataOutputStream out, String key) throws IOException
+    {
+        String accept;
+
+        try
+        {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            accept = Base64.getEncoder().encodeToString(sha1.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII)));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-1 is not supported by the JVM", e);
+        }
+
+        out.write(("HTTP/1.1 101 Switching Protocols\r\n" +
+                   "Upgrade: websocket\r\n" +
+                   "Connection: Upgrade\r\n" +
+                   "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        JsonObject hello = new JsonObject();
+        hello.addProperty("heartbeat_interval", HEARTBEAT_INTERVAL);
+
+        send(out, OP_HELLO, null, 0, hello);
+
+        int sequence = 0;
+        String message;
+
+        while ((message = readMessage(in, out)) != null)
+        {
+            int op = new JsonParser().parse(message).getAsJsonObject().get("op").getAsInt();
+
+            if (op == OP_HEARTBEAT)
+            {
+                send(out, OP_HEARTBEAT_ACK, null, 0, null);
+            }
+            else if (op == OP_IDENTIFY)
+            {
+                send(out, OP_DISPATCH, "READY", ++sequence, ready());
+            }
+        }
+    }
+
+    private static JsonObject selfUser()
+    {
+        JsonObject user = new JsonObject();
+        user.addProperty("id", "1");
+        user.addProperty("username", "Krobot Training");
+        user.addProperty("discriminator", "0000");
+        user.add("avatar", null);
+        user.addProperty("bot", true);
+        user.addProperty("verified", true);
+        user.addProperty("mfa_enabled", false);
+        user.addProperty("flags", 0);
+
+        return user;
+    }
+
+    private static JsonObject ready()
+    {
+        JsonObject application = new JsonObject();
+        application.addProperty("id", "1");
+        application.addProperty("flags", 0);
+
+        JsonArray trace = new JsonArray();
+        trace.add("krobot-stand-in");
+
+        JsonObject ready = new JsonObject();
+        ready.addProperty("v", 6);
+        ready.add("user", selfUser());
+        ready.add("guilds", new JsonArray());
+        ready.add("private_channels", new JsonArray());
+        ready.add("relationships", new JsonArray());
+        ready.add("presences", new JsonArray());
+        ready.addProperty("session_id", "training");
+        ready.add("application", application);
+        ready.add("_trace", trace);
+
+        return ready;
+    }
+
+    private static void send(DataOutputStream out, int op, String type, int sequence, JsonElement data) throws IOException
+    {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("op", op);
+        payload.add("d", data);
+
+        if (type != null)
+        {
+            payload.addProperty("t", type);
+            payload.addProperty("s", sequence);
+        }
+
+        frame(out, FRAME_TEXT, payload.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The next text message sent by the client, or null if it closed the connection
+     */
+    private static String readMessage(DataInputStream in, DataOutputStream out) throws IOException
+    {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+
+        while (true)
+        {
+            int first = in.readUnsignedByte();
+            int second = in.readUnsignedByte();
+
+            long length = second & 0x7F;
+
+            if (length == 126)
+            {
+                length = in.readUnsignedShort();
+            }
+            else if (length == 127)
+            {
+                length = in.readLong();
+            }
+
+            byte[] mask = new byte[4];
+
+            if ((second & 0x80) != 0)
+            {
+                in.readFully(mask);
+            }
+
+            byte[] data = new byte[(int) length];
+            in.readFully(data);
+
+            for (int i = 0; i < data.length; i++)
+            {
+                data[i] ^= mask[i % 4];
+            }
+
+            switch (first & 0x0F)
+            {
+                case FRAME_CLOSE:
+                    frame(out, FRAME_CLOSE, data);
+                    return null;
+                case FRAME_PING:
+                    frame(out, FRAME_PONG, data);
+                    break;
+                case FRAME_PONG:
+                    break;
+                default:
+                    // Text or continuation
+                    message.write(data);
+
+                    if ((first & 0x80) != 0)
+                    {
+                        return new String(message.toByteArray(), StandardCharsets.UTF_8);
+                    }
+            }
+        }
+    }
+
+    private static void frame(DataOutputStream out, int opcode, byte[] data) throws IOException
+    {
+        out.write(0x80 | opcode);
+
+        if (data.length < 126)
+        {
+            out.write(data.length);
+        }
+        else if (data.length < 65536)
+        {
+            out.write(126);
+            out.writeShort(data.length);
+        }
+        else
+        {
+            out.write(127);
+            out.writeLong(data.length);
+        }
+
+        out.write(data);
+        out.flush();
+    }
+
+    private static String readLine(DataInputStream in) throws IOException
+    {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int read;
+
+        while ((read = in.read()) != '\n')
+        {
+            if (read == -1)
+            {
+                throw new EOFException();
+            }
+
+            if (read != '\r')
+            {
+                line.write(read);
+            }
+        }
+
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        server.close();
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 The Krobot Contributors
+ *
+ * This file is part of Krobot.
+ *
+ * Krobot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Krobot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Krobot.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.krobot.training;
+
+import java.io.IOException;
+
+import org.krobot.Krobot;
+import org.krobot.KrobotModule;
+import org.krobot.runtime.KrobotRuntime;
+
+/**
+ * Boot a bot against a {@link StandInGateway}, then stop it. It runs every
+ * startup phase without Discord, so the JVM can record the classes a boot
+ * loads into an AppCDS archive (see the 'appCds' Gradle task).<br><br>
+ *
+ * Usage: {@code TrainingBoot <bot class>}
+ */
+public final class TrainingBoot
+{
+    private static final String TOKEN = "training.stand-in.token";
+
+    private TrainingBoot()
+    {
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException
+    {
+        if (args.length != 1)
+        {
+            System.err.println("Usage: TrainingBoot <bot class>");
+            System.exit(1);
+        }
+
+        Class<? extends KrobotModule> bot = Class.forName(args[0]).asSubclass(KrobotModule.class);
+
+        try (StandInGateway gateway = new StandInGateway())
+        {
+            System.setProperty(Krobot.PROPERTY_GATEWAY, gateway.getAddress());
+            System.setProperty(Krobot.PROPERTY_DISABLE_CONSOLE, "true");
+            System.setProperty(Krobot.PROPERTY_DISABLE_STATE_BAR, "true");
+
+            KrobotRuntime.start(bot, TOKEN);
+            KrobotRuntime.stop();
+        }
+
+        // Modules may leave non-daemon threads running, and the archive is only dumped when the JVM exits
+        System.exit(0);
+    }
+}